@@ -1,51 +1,153 @@
 
 /**
  * Aquarium represents a single problem in the game Aquarium.
+ * The problem itself is held in a Puzzle, which may be shared by many boards;
+ * an Aquarium adds one board of spaces being played on it.
  *
  * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
  * @version 1.0
  */
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 public class Aquarium
 {
-    private int   size;         // the board is size x size
-    private int[] columnTotals; // the totals at the top of the columns, left to right
-    private int[] rowTotals;    // the totals at the left of the rows, top to bottom 
+    // the spaces by ordinal, for unpacking the trail and the history
+    private static final Space[] SPACES = Space.values();
+    // the states of an aquarium in validity
+    private static final byte UNCHECKED = 0;
+    private static final byte VALID     = 1;
+    private static final byte INVALID   = 2;
+    // the most changes kept for undo, and the flag on the last change of each move
+    private static final int HISTORY_LIMIT = 1 << 16;
+    private static final int END_OF_MOVE = 1 << 4;
+
+    // the size, totals and aquariums, which may be shared with other boards
+    private Puzzle puzzle;
+    // the board is size x size
+    private int    size;
 
-    // the board divided into aquariums, numbered from 1,2,3,...
-    // spaces with the same number are part of the same aquarium
-    private int[][] aquariums;
     // the board divided into spaces, each empty, water, or air
     private Space[][] spaces;
+    // the same spaces held as water and air bitsets; spaces is kept as a view of it
+    private Bitboard bits;
+
+    // the number of water spaces in each row and column, kept up to date by every move
+    private int[] rowCounts;
+    private int[] columnCounts;
+
+    // whether each aquarium, by number, obeys the rules; an aquarium is marked UNCHECKED
+    // whenever one of its squares changes, and checked again only when next asked about
+    private byte[] validity;
+
+    // true while a Snapshot shares spaces, bits and the counts, so they must be copied before a move
+    private boolean shared;
+
+    // the moves made since the trail was started by mark, oldest first, each packed
+    // as (r * size + c) << 2 | the ordinal of the space it replaced
+    private int[]   trail;
+    private int     trailSize;
+    private boolean recording;
+
+    // the changes made by moves, for undo and redo, in a ring buffer whose length is a power of two:
+    // from historyStart, undoCount changes which can be undone, then redoCount which can be redone.
+    // Each is packed as (r * size + c) << 5 | END_OF_MOVE on a move's last change | old << 2 | new,
+    // with the ordinals of the old and new spaces
+    private int[]   history;
+    private int     historyStart;
+    private int     undoCount;
+    private int     redoCount;
+    private int     moveDepth;    // the number of beginMove calls not yet ended
+    private int     moveChanges;  // the changes kept so far for the move in progress
+    private boolean moveTooLarge; // true iff the move in progress overflowed the history, so is not kept
+
+    /**
+     * A board state saved by snapshot, which restore can put back.
+     * It shares the board's arrays until the board next changes, so it costs O(1) to take.
+     */
+    public static final class Snapshot
+    {
+        private final Puzzle    puzzle;
+        private final Space[][] spaces;
+        private final Bitboard  bits;
+        private final int[]     rowCounts;
+        private final int[]     columnCounts;
+
+        private Snapshot(Aquarium board)
+        {
+            puzzle = board.puzzle;
+            spaces = board.spaces;
+            bits = board.bits;
+            rowCounts = board.rowCounts;
+            columnCounts = board.columnCounts;
+        }
+
+        /**
+         * Returns the puzzle of the board this was taken from.
+         */
+        public Puzzle getPuzzle()
+        {
+            return puzzle;
+        }
+    }
 
     /**
      * Constructor for objects of class Aquarium. 
      * Creates, initialises, and populates all of the fields.
+     * Throws an UncheckedIOException if the file cannot be read.
      */
     public Aquarium(String filename)
     {
-        FileIO fileHandler = new FileIO(filename);
-        ArrayList<String> lines = fileHandler.getLines();
-
-        columnTotals = parseLine(lines.get(0));
-        rowTotals = parseLine(lines.get(1));
+        this(Puzzle.load(filename));
+    }
 
-        size = columnTotals.length;
+    /**
+     * Constructor for objects of class Aquarium from the next puzzle read by parser,
+     * which is left at the line after the puzzle.
+     */
+    public Aquarium(PuzzleParser parser)
+    {
+        this(Puzzle.read(parser));
+    }
 
-        spaces = new Space[size][size];
-        aquariums = new int[size][size];
+    /**
+     * Constructor for objects of class Aquarium from a puzzle already in memory, 
+     * in the same layout as the files: the arrays are copied.
+     */
+    public Aquarium(int[] columnTotals, int[] rowTotals, int[][] aquariums)
+    {
+        this(new Puzzle(columnTotals, rowTotals, aquariums));
+    }
 
-        int skipLines = 3;
+    /**
+     * Constructor for objects of class Aquarium giving an empty board for puzzle. 
+     * The puzzle is shared, not copied, so any number of boards can be made for it cheaply.
+     */
+    public Aquarium(Puzzle puzzle)
+    {
+        this.puzzle = puzzle;
+        size = puzzle.getSize();
+        trail = new int[16];
+        history = new int[16];
+        validity = new byte[puzzle.getRegionCount()];
+        emptyBoard();
+    }
 
-        for (int lineNumber = skipLines; lineNumber < lines.size(); ++lineNumber) {
-            aquariums[lineNumber - skipLines] = parseLine(lines.get(lineNumber));
+    /**
+     * Gives the board fresh arrays, with every space empty.
+     */
+    private void emptyBoard()
+    {
+        spaces = new Space[size][size];
+        bits = new Bitboard(size);
+        rowCounts = new int[size];
+        columnCounts = new int[size];
+        shared = false;
 
+        for (int row = 0; row < size; ++row) {
             Space[] spaceRow = new Space[size];
             Arrays.fill(spaceRow, Space.EMPTY);
-            spaces[lineNumber - skipLines] = spaceRow;
+            spaces[row] = spaceRow;
         }
     }
 
@@ -59,20 +161,30 @@ public class Aquarium
 
     /**
      * Returns an array containing the ints in s, 
-     * each of which is separated by one space. 
+     * separated by one or more spaces. 
      * e.g. if s = "1 299 34 5", it will return {1,299,34,5} 
+     * Throws a NumberFormatException giving the column of any malformed number.
      */
     public static int[] parseLine(String s)
     {
-        String[] numberStrings = s.split(" ");
-
-        int[] numbers = new int[numberStrings.length];
+        return new PuzzleParser(s).nextLine();
+    }
 
-        for (int numberIndex = 0; numberIndex < numberStrings.length; ++numberIndex) {
-            numbers[numberIndex] = Integer.parseInt(numberStrings[numberIndex]);
-        }
+    /**
+     * Returns the puzzle in the format of the files in Examples: 
+     * the column totals, the row totals, a blank line, then the aquariums row by row.
+     */
+    public String toText()
+    {
+        return puzzle.toText();
+    }
 
-        return numbers;
+    /**
+     * Returns the puzzle this board is for.
+     */
+    public Puzzle getPuzzle()
+    {
+        return puzzle;
     }
 
     /**
@@ -84,37 +196,127 @@ public class Aquarium
     }
 
     /**
-     * Returns the column totals.
+     * Returns a copy of the column totals.
      */
     public int[] getColumnTotals()
     {
-        return columnTotals;
+        return puzzle.getColumnTotals();
     }
 
     /**
-     * Returns the row totals.
+     * Returns a copy of the row totals.
      */
     public int[] getRowTotals()
     {
-        return rowTotals;
+        return puzzle.getRowTotals();
     }
 
     /**
-     * Returns the board in aquariums.
+     * Returns a copy of the board in aquariums.
      */
     public int[][] getAquariums()
     {
-        return aquariums;
+        return puzzle.getAquariums();
+    }
+
+    /**
+     * Returns a copy of the index of every aquarium, where entry t describes the aquarium numbered t. 
+     * Entries for numbers not used on the board are null.
+     */
+    public AquariumRegion[] getRegions()
+    {
+        return puzzle.getRegions();
+    }
+
+    /**
+     * Returns the index of the aquarium numbered t, or null if there is no such aquarium.
+     */
+    public AquariumRegion getRegion(int t)
+    {
+        return puzzle.getRegion(t);
     }
 
     /**
-     * Returns the board in spaces.
+     * Returns the board in spaces. 
+     * The array is replaced when the board changes after a snapshot, so callers should not keep it.
      */
     public Space[][] getSpaces()
     {
         return spaces;
     }
 
+    /**
+     * Returns the board as water and air bitsets. 
+     * The board is maintained by the moves, so callers must not modify it.
+     */
+    public Bitboard getBitboard()
+    {
+        return bits;
+    }
+
+    /**
+     * Returns the number of water spaces in each row, top down. 
+     * The array is maintained by the moves, so callers must not modify it.
+     */
+    public int[] getRowCounts()
+    {
+        return rowCounts;
+    }
+
+    /**
+     * Returns the number of water spaces in each column, left to right. 
+     * The array is maintained by the moves, so callers must not modify it.
+     */
+    public int[] getColumnCounts()
+    {
+        return columnCounts;
+    }
+
+    /**
+     * Returns true iff Row r holds exactly the number of water spaces required.
+     */
+    public boolean isRowSatisfied(int r)
+    {
+        return rowCounts[r] == puzzle.getRowTotal(r);
+    }
+
+    /**
+     * Returns true iff Column c holds exactly the number of water spaces required.
+     */
+    public boolean isColumnSatisfied(int c)
+    {
+        return columnCounts[c] == puzzle.getColumnTotal(c);
+    }
+
+    /**
+     * Returns true iff the aquarium numbered t obeys the rules: each of its rows is 
+     * either all water or all not-water, and all of its water is below all of its not-water. 
+     * The answer is kept until one of the aquarium's squares changes. 
+     * Numbers with no aquarium are valid.
+     */
+    public boolean isAquariumValid(int t)
+    {
+        AquariumRegion region = puzzle.getRegion(t);
+        if (region == null)
+            return true;
+
+        if (validity[t] == UNCHECKED) {
+            validity[t] = VALID;
+            boolean hasWater = false;
+            for (int i = 0; i < region.getRowCount(); ++i) {
+                int status = bits.rowStatus(region.getRow(i), region.getRowMasks(), region.getMaskOffset(i));
+                if (status == 1) {
+                    hasWater = true;
+                }
+                else if (status == 3 || hasWater) {
+                    validity[t] = INVALID;
+                    break;
+                }
+            }
+        }
+        return validity[t] == VALID;
+    }
+
     /**
      * Performs a left click on Square r,c if the indices are legal, o/w does nothing. 
      * A water space becomes empty; other spaces become water. 
@@ -122,12 +324,14 @@ public class Aquarium
     public void leftClick(int r, int c)
     {        
         if (c >= 0 && c < size && r >= 0 && r < size) {
+            beginMove();
             if (spaces[r][c] == Space.WATER) {
-                spaces[r][c] = Space.EMPTY;
+                change(r, c, Space.EMPTY);
             }
             else {
-                spaces[r][c] = Space.WATER;
+                change(r, c, Space.WATER);
             }
+            endMove();
         }
     }
 
@@ -138,24 +342,312 @@ public class Aquarium
     public void rightClick(int r, int c)
     {
         if (c >= 0 && c < size && r >= 0 && r < size) {
+            beginMove();
             if (spaces[r][c] == Space.AIR) {
-                spaces[r][c] = Space.EMPTY;
+                change(r, c, Space.EMPTY);
             }
             else {
-                spaces[r][c] = Space.AIR;
+                change(r, c, Space.AIR);
             }
+            endMove();
         }
     }
 
     /**
-     * Empties all of the spaces.
+     * Empties all of the spaces, as a single move.
      */
     public void clear()
     {
+        beginMove();
         for (int rowIndex = 0; rowIndex < size; ++rowIndex) {
             for (int colIndex = 0; colIndex < size; ++colIndex) {
-                spaces[rowIndex][colIndex] = Space.EMPTY;
+                if (spaces[rowIndex][colIndex] != Space.EMPTY)
+                    change(rowIndex, colIndex, Space.EMPTY);
             }
         }
+        endMove();
+    }
+
+    /**
+     * Starts a move: every click and clear until the matching endMove is undone and redone together. 
+     * Moves may be nested, in which case the outermost one counts.
+     */
+    public void beginMove()
+    {
+        moveDepth++;
+    }
+
+    /**
+     * Ends the move started by the matching beginMove.
+     */
+    public void endMove()
+    {
+        if (moveDepth == 0)
+            throw new IllegalStateException("endMove without beginMove");
+        if (--moveDepth > 0)
+            return;
+        if (moveChanges > 0 && !moveTooLarge)
+            history[historyIndex(undoCount - 1)] |= END_OF_MOVE;
+        moveChanges = 0;
+        moveTooLarge = false;
+    }
+
+    /**
+     * Returns true iff there is a move to undo.
+     */
+    public boolean canUndo()
+    {
+        return undoCount > 0;
+    }
+
+    /**
+     * Returns true iff there is an undone move to redo.
+     */
+    public boolean canRedo()
+    {
+        return redoCount > 0;
+    }
+
+    /**
+     * Undoes the latest move which has not been undone. 
+     * Returns the squares changed, each as r * size + c, so that only they need redrawing; 
+     * the array is empty if there was nothing to undo.
+     */
+    public int[] undo()
+    {
+        if (moveDepth > 0)
+            throw new IllegalStateException("cannot undo in the middle of a move");
+        if (undoCount == 0)
+            return new int[0];
+
+        int count = 1;
+        while (count < undoCount && (history[historyIndex(undoCount - count - 1)] & END_OF_MOVE) == 0)
+            count++;
+        int[] squares = new int[count];
+        for (int i = 0; i < count; ++i) {
+            int entry = history[historyIndex(undoCount - 1 - i)];
+            squares[i] = entry >>> 5;
+            setSpace(squares[i] / size, squares[i] % size, SPACES[(entry >>> 2) & 3]);
+        }
+        undoCount -= count;
+        redoCount += count;
+        return squares;
+    }
+
+    /**
+     * Redoes the latest move undone, unless a move has been made since. 
+     * Returns the squares changed, each as r * size + c, so that only they need redrawing; 
+     * the array is empty if there was nothing to redo.
+     */
+    public int[] redo()
+    {
+        if (moveDepth > 0)
+            throw new IllegalStateException("cannot redo in the middle of a move");
+        if (redoCount == 0)
+            return new int[0];
+
+        int count = 1;
+        while (count < redoCount && (history[historyIndex(undoCount + count - 1)] & END_OF_MOVE) == 0)
+            count++;
+        int[] squares = new int[count];
+        for (int i = 0; i < count; ++i) {
+            int entry = history[historyIndex(undoCount + i)];
+            squares[i] = entry >>> 5;
+            setSpace(squares[i] / size, squares[i] % size, SPACES[entry & 3]);
+        }
+        undoCount += count;
+        redoCount -= count;
+        return squares;
+    }
+
+    /**
+     * Forgets every move, so there is nothing to undo or redo.
+     */
+    public void clearHistory()
+    {
+        historyStart = 0;
+        undoCount = 0;
+        redoCount = 0;
+        moveChanges = 0;
+        moveTooLarge = false;
+    }
+
+    /**
+     * Starts recording moves, if it has not started already, and returns a mark 
+     * for the current state, which rollback can return to.
+     */
+    public int mark()
+    {
+        recording = true;
+        return trailSize;
+    }
+
+    /**
+     * Undoes every move made since mark was returned by mark(), latest first, 
+     * and forgets the undo history. Marks taken after it are no longer valid.
+     */
+    public void rollback(int mark)
+    {
+        while (trailSize > mark) {
+            int move = trail[--trailSize];
+            int square = move >>> 2;
+            writeSpace(square / size, square % size, SPACES[move & 3]);
+        }
+        clearHistory();
+    }
+
+    /**
+     * Forgets the trail, keeping every move made. 
+     * Moves are not recorded again until the next mark.
+     */
+    public void commit()
+    {
+        trailSize = 0;
+        recording = false;
+    }
+
+    /**
+     * Returns a snapshot of the board, in O(1) time. 
+     * The board's arrays are copied only when it next changes.
+     */
+    public Snapshot snapshot()
+    {
+        shared = true;
+        return new Snapshot(this);
+    }
+
+    /**
+     * Puts the board back to the state saved in snapshot, in O(1) time, 
+     * and forgets the trail and the undo history. 
+     * The snapshot must have been taken from a board for the same Puzzle, and can be restored again.
+     */
+    public void restore(Snapshot snapshot)
+    {
+        if (snapshot.puzzle != puzzle)
+            throw new IllegalArgumentException("the snapshot is of a different puzzle");
+        spaces = snapshot.spaces;
+        bits = snapshot.bits;
+        rowCounts = snapshot.rowCounts;
+        columnCounts = snapshot.columnCounts;
+        shared = true;
+        Arrays.fill(validity, UNCHECKED);
+        commit();
+        clearHistory();
+    }
+
+    /**
+     * Changes Square r,c to newSpace as part of the current move, recording it for undo.
+     */
+    private void change(int r, int c, Space newSpace)
+    {
+        Space oldSpace = spaces[r][c];
+        if (oldSpace == newSpace)
+            return;
+        if (!moveTooLarge) {
+            redoCount = 0;
+            if (undoCount == history.length && !makeHistoryRoom()) {
+                // the move alone fills the history, so none of it is kept
+                clearHistory();
+                moveTooLarge = true;
+            }
+            else {
+                history[historyIndex(undoCount++)] = (r * size + c) << 5 | oldSpace.ordinal() << 2 | newSpace.ordinal();
+                moveChanges++;
+            }
+        }
+        setSpace(r, c, newSpace);
+    }
+
+    /**
+     * Makes room for one more change in the full history, by growing it if it is below the limit
+     * or else by forgetting the oldest move. Returns false if there is no complete move to forget.
+     */
+    private boolean makeHistoryRoom()
+    {
+        if (history.length < HISTORY_LIMIT) {
+            int[] grown = new int[2 * history.length];
+            for (int i = 0; i < undoCount; ++i)
+                grown[i] = history[historyIndex(i)];
+            history = grown;
+            historyStart = 0;
+            return true;
+        }
+
+        int complete = undoCount - moveChanges;
+        for (int i = 0; i < complete; ++i) {
+            if ((history[historyIndex(i)] & END_OF_MOVE) != 0) {
+                historyStart = historyIndex(i + 1);
+                undoCount -= i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the position in history of the i-th change kept, counting from the oldest.
+     */
+    private int historyIndex(int i)
+    {
+        return (historyStart + i) & (history.length - 1);
+    }
+
+    /**
+     * Forgets the validity kept for every aquarium, so that the next checks work it out again.
+     * Used by the benchmarks, to measure the checks rather than the lookup.
+     */
+    void forgetValidity()
+    {
+        Arrays.fill(validity, UNCHECKED);
+    }
+
+    /**
+     * Changes Square r,c to newSpace, recording the move on the trail if it is being kept.
+     */
+    private void setSpace(int r, int c, Space newSpace)
+    {
+        if (recording) {
+            if (trailSize == trail.length)
+                trail = Arrays.copyOf(trail, 2 * trailSize);
+            trail[trailSize++] = (r * size + c) << 2 | spaces[r][c].ordinal();
+        }
+        writeSpace(r, c, newSpace);
+    }
+
+    /**
+     * Changes Square r,c to newSpace, keeping the water counts and the bitboard in step.
+     */
+    private void writeSpace(int r, int c, Space newSpace)
+    {
+        if (shared)
+            unshare();
+
+        Space oldSpace = spaces[r][c];
+        if (oldSpace == Space.WATER) {
+            rowCounts[r]--;
+            columnCounts[c]--;
+        }
+        if (newSpace == Space.WATER) {
+            rowCounts[r]++;
+            columnCounts[c]++;
+        }
+        spaces[r][c] = newSpace;
+        bits.set(r, c, newSpace);
+        validity[puzzle.getAquarium(r, c)] = UNCHECKED;
+    }
+
+    /**
+     * Gives the board its own copies of the arrays it shares with a snapshot.
+     */
+    private void unshare()
+    {
+        Space[][] copy = new Space[size][];
+        for (int row = 0; row < size; ++row)
+            copy[row] = spaces[row].clone();
+        spaces = copy;
+        bits = new Bitboard(bits);
+        rowCounts = rowCounts.clone();
+        columnCounts = columnCounts.clone();
+        shared = false;
     }
 }
@@ -0,0 +1,274 @@
+/**
+ * AquariumRegion is an index of the squares belonging to one aquarium of a puzzle.
+ * It is built once when the puzzle is loaded, so that validators and solvers
+ * only visit the squares that are actually in the aquarium.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class AquariumRegion
+{
+    private int number;        // the aquarium number used in the aquariums grid
+    private int cellCount;     // the number of squares in the aquarium
+
+    // the bounding box of the aquarium, inclusive
+    private int top;
+    private int bottom;
+    private int left;
+    private int right;
+
+    // the squares of the aquarium in row-major order
+    private int[] cellRows;
+    private int[] cellColumns;
+
+    // the rows the aquarium spans, top down, and for each of them
+    // the first square in cellRows/cellColumns and the leftmost and rightmost columns
+    private int[] rows;
+    private int[] rowStarts;
+    private int[] minColumns;
+    private int[] maxColumns;
+
+    // rowIndices[r - top] is the position of Row r in rows, or -1 if the aquarium is not on Row r
+    private int[] rowIndices;
+
+    // a Bitboard mask of the aquarium's squares on each row it spans, wordsPerRow longs per row
+    private int    wordsPerRow;
+    private long[] rowMasks;
+
+    /**
+     * Builds the index for the aquarium numbered number from the squares given in row-major order, 
+     * on a board width squares wide.
+     */
+    private AquariumRegion(int number, int[] cellRows, int[] cellColumns, int width)
+    {
+        this.number = number;
+        this.cellRows = cellRows;
+        this.cellColumns = cellColumns;
+        cellCount = cellRows.length;
+
+        top = cellRows[0];
+        bottom = cellRows[cellCount - 1];
+        left = cellColumns[0];
+        right = cellColumns[0];
+
+        int rowCount = 0;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            left = Math.min(left, cellColumns[cell]);
+            right = Math.max(right, cellColumns[cell]);
+            if (cell == 0 || cellRows[cell] != cellRows[cell - 1])
+                rowCount++;
+        }
+
+        rows = new int[rowCount];
+        rowStarts = new int[rowCount + 1];
+        minColumns = new int[rowCount];
+        maxColumns = new int[rowCount];
+        rowIndices = new int[bottom - top + 1];
+        Arrays.fill(rowIndices, -1);
+        wordsPerRow = Bitboard.wordsFor(width);
+        rowMasks = new long[rowCount * wordsPerRow];
+
+        int rowIndex = -1;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            if (cell == 0 || cellRows[cell] != cellRows[cell - 1]) {
+                rowIndex++;
+                rows[rowIndex] = cellRows[cell];
+                rowStarts[rowIndex] = cell;
+                minColumns[rowIndex] = cellColumns[cell];
+                rowIndices[cellRows[cell] - top] = rowIndex;
+            }
+            maxColumns[rowIndex] = cellColumns[cell];
+            rowMasks[rowIndex * wordsPerRow + (cellColumns[cell] >>> 6)] |= 1L << cellColumns[cell];
+        }
+        rowStarts[rowCount] = cellCount;
+    }
+
+    /**
+     * Returns an index of every aquarium in the grid aquariums,
+     * where the entry at position t describes the aquarium numbered t.
+     * Numbers which are not used in the grid have a null entry.
+     */
+    public static AquariumRegion[] index(int[][] aquariums)
+    {
+        int maxNumber = 0;
+        for (int[] row : aquariums)
+            for (int t : row)
+                maxNumber = Math.max(maxNumber, t);
+
+        int[] counts = new int[maxNumber + 1];
+        for (int[] row : aquariums)
+            for (int t : row)
+                counts[t]++;
+
+        int[][] cellRows = new int[maxNumber + 1][];
+        int[][] cellColumns = new int[maxNumber + 1][];
+        for (int t = 0; t <= maxNumber; ++t) {
+            cellRows[t] = new int[counts[t]];
+            cellColumns[t] = new int[counts[t]];
+        }
+
+        int[] filled = new int[maxNumber + 1];
+        for (int r = 0; r < aquariums.length; ++r) {
+            for (int c = 0; c < aquariums[r].length; ++c) {
+                int t = aquariums[r][c];
+                cellRows[t][filled[t]] = r;
+                cellColumns[t][filled[t]] = c;
+                filled[t]++;
+            }
+        }
+
+        AquariumRegion[] regions = new AquariumRegion[maxNumber + 1];
+        for (int t = 0; t <= maxNumber; ++t) {
+            if (counts[t] > 0)
+                regions[t] = new AquariumRegion(t, cellRows[t], cellColumns[t], aquariums.length);
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the aquarium number.
+     */
+    public int getNumber()
+    {
+        return number;
+    }
+
+    /**
+     * Returns the number of squares in the aquarium.
+     */
+    public int getCellCount()
+    {
+        return cellCount;
+    }
+
+    /**
+     * Returns the row of the k-th square, in row-major order.
+     */
+    public int getCellRow(int k)
+    {
+        return cellRows[k];
+    }
+
+    /**
+     * Returns the column of the k-th square, in row-major order.
+     */
+    public int getCellColumn(int k)
+    {
+        return cellColumns[k];
+    }
+
+    /**
+     * Returns the top row of the bounding box.
+     */
+    public int getTop()
+    {
+        return top;
+    }
+
+    /**
+     * Returns the bottom row of the bounding box.
+     */
+    public int getBottom()
+    {
+        return bottom;
+    }
+
+    /**
+     * Returns the leftmost column of the bounding box.
+     */
+    public int getLeft()
+    {
+        return left;
+    }
+
+    /**
+     * Returns the rightmost column of the bounding box.
+     */
+    public int getRight()
+    {
+        return right;
+    }
+
+    /**
+     * Returns the number of rows the aquarium spans.
+     */
+    public int getRowCount()
+    {
+        return rows.length;
+    }
+
+    /**
+     * Returns the i-th row the aquarium spans, top down.
+     */
+    public int getRow(int i)
+    {
+        return rows[i];
+    }
+
+    /**
+     * Returns the position of Row r among the rows the aquarium spans,
+     * or -1 if the aquarium has no squares on Row r.
+     */
+    public int getRowIndex(int r)
+    {
+        if (r < top || r > bottom)
+            return -1;
+        return rowIndices[r - top];
+    }
+
+    /**
+     * Returns the position in row-major order of the first square on the i-th row.
+     * The squares on the i-th row run up to, but not including, getRowStart(i + 1).
+     */
+    public int getRowStart(int i)
+    {
+        return rowStarts[i];
+    }
+
+    /**
+     * Returns the number of squares on the i-th row.
+     */
+    public int getRowWidth(int i)
+    {
+        return rowStarts[i + 1] - rowStarts[i];
+    }
+
+    /**
+     * Returns the leftmost column of the aquarium on the i-th row.
+     */
+    public int getMinColumn(int i)
+    {
+        return minColumns[i];
+    }
+
+    /**
+     * Returns the rightmost column of the aquarium on the i-th row.
+     */
+    public int getMaxColumn(int i)
+    {
+        return maxColumns[i];
+    }
+
+    /**
+     * Returns the Bitboard masks of the aquarium's squares on the rows it spans; 
+     * the mask for the i-th row starts at getMaskOffset(i). 
+     * The array is not copied, for the validity checks which read it on every move, so it is
+     * kept out of the public interface: it belongs to a Puzzle shared by many boards and threads,
+     * and must never be modified.
+     */
+    long[] getRowMasks()
+    {
+        return rowMasks;
+    }
+
+    /**
+     * Returns the position in getRowMasks() of the mask for the i-th row.
+     */
+    public int getMaskOffset(int i)
+    {
+        return i * wordsPerRow;
+    }
+}
@@ -0,0 +1,396 @@
+/**
+ * AquariumSolver finds a solution to an Aquarium puzzle by constraint propagation
+ * and backtracking.
+ *
+ * The solver works on segments: the squares of one aquarium on one row.
+ * Every square of a segment must be the same, so each segment is either water or air.
+ * Propagation combines the subset-sum deductions on the segment widths of each row,
+ * the column totals, and gravity within each aquarium; when it stalls the
+ * solver guesses the widest undecided segment and backtracks if the guess fails,
+ * undoing the decisions recorded on a trail since the guess.
+ * The same search can carry on past the first solution to count them, 
+ * which is how uniqueness is checked.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.util.ArrayList;
+
+public class AquariumSolver
+{
+    // segment states
+    private static final byte UNKNOWN = 0;
+    private static final byte WATER   = 1;
+    private static final byte AIR     = 2;
+
+    private int   size;         // the board is size x size
+    private int[] rowTotals;    // the totals at the left of the rows, top to bottom
+    private int[] columnTotals; // the totals at the top of the columns, left to right
+
+    // the segments: their row, width, columns, and the segments of the same aquarium
+    // on the rows above and below, or -1 if there are none
+    private int     segmentCount;
+    private int[]   segmentRows;
+    private int[]   segmentWidths;
+    private int[][] segmentColumns;
+    private int[]   segmentAbove;
+    private int[]   segmentBelow;
+
+    private int[][] rowSegments;    // the segments on each row
+    private int[][] columnSegments; // the segment of each square in each column, top down
+
+    private byte[]  states;         // the current state of each segment
+    private int[]   trail;          // the segments decided so far, in order, for backtracking
+    private int     trailSize;
+    private byte[]  deduced;        // the states forced before any guess was made
+    private ArrayList<byte[]> solutions; // the states of the solutions kept so far
+    private int     solutionCount;  // the number of solutions found so far
+    private int     cap;            // the search stops once this many solutions are found
+
+    // working storage for the row deductions, reused for every row
+    private SubsetSums subsetSums;
+    private int[]      undecided;
+    private int[]      undecidedWidths;
+
+    private int     steps;          // the number of search nodes visited so far
+    private int     maxSteps;       // the search budget
+    private boolean budgetSpent;    // true iff the last search stopped because of the budget
+
+    /**
+     * Creates a solver for the puzzle p. The spaces of p are ignored.
+     */
+    public AquariumSolver(Aquarium p)
+    {
+        size = p.getSize();
+        rowTotals = p.getRowTotals();
+        columnTotals = p.getColumnTotals();
+
+        AquariumRegion[] regions = p.getRegions();
+        segmentCount = 0;
+        for (AquariumRegion region : regions)
+            if (region != null)
+                segmentCount += region.getRowCount();
+
+        segmentRows = new int[segmentCount];
+        segmentWidths = new int[segmentCount];
+        segmentColumns = new int[segmentCount][];
+        segmentAbove = new int[segmentCount];
+        segmentBelow = new int[segmentCount];
+
+        int[] rowSizes = new int[size];
+        int[][] squareSegments = new int[size][size];
+        int segment = 0;
+        for (AquariumRegion region : regions) {
+            if (region == null)
+                continue;
+            for (int i = 0; i < region.getRowCount(); ++i) {
+                segmentRows[segment] = region.getRow(i);
+                segmentWidths[segment] = region.getRowWidth(i);
+                segmentColumns[segment] = new int[region.getRowWidth(i)];
+                for (int k = 0; k < region.getRowWidth(i); ++k) {
+                    int column = region.getCellColumn(region.getRowStart(i) + k);
+                    segmentColumns[segment][k] = column;
+                    squareSegments[region.getRow(i)][column] = segment;
+                }
+                segmentAbove[segment] = i == 0 ? -1 : segment - 1;
+                segmentBelow[segment] = i == region.getRowCount() - 1 ? -1 : segment + 1;
+                rowSizes[region.getRow(i)]++;
+                segment++;
+            }
+        }
+
+        rowSegments = new int[size][];
+        for (int row = 0; row < size; ++row)
+            rowSegments[row] = new int[rowSizes[row]];
+        int[] filled = new int[size];
+        for (segment = 0; segment < segmentCount; ++segment) {
+            int row = segmentRows[segment];
+            rowSegments[row][filled[row]++] = segment;
+        }
+
+        columnSegments = new int[size][size];
+        for (int column = 0; column < size; ++column)
+            for (int row = 0; row < size; ++row)
+                columnSegments[column][row] = squareSegments[row][column];
+
+        states = new byte[segmentCount];
+        trail = new int[segmentCount];
+        subsetSums = new SubsetSums();
+        undecided = new int[size];
+        undecidedWidths = new int[size];
+    }
+
+    /**
+     * Searches for a solution, visiting at most maxSteps search nodes.
+     * Returns true iff a solution was found.
+     */
+    public boolean solve(int maxSteps)
+    {
+        return countSolutions(1, maxSteps) == 1;
+    }
+
+    /**
+     * Counts the solutions, stopping once cap of them are found or 
+     * maxSteps search nodes have been visited. Returns the number found; 
+     * it is exact if it is below cap and the budget was not spent. 
+     * The solutions found can then be read with getSolution.
+     */
+    public int countSolutions(int cap, int maxSteps)
+    {
+        this.cap = cap;
+        this.maxSteps = maxSteps;
+        steps = 0;
+        budgetSpent = false;
+        solutionCount = 0;
+        solutions = new ArrayList<byte[]>();
+        states = new byte[segmentCount];
+        trailSize = 0;
+        if (propagate()) {
+            deduced = states.clone();
+            search();
+        }
+        else {
+            // the puzzle has no solution, so nothing can be trusted
+            deduced = new byte[segmentCount];
+        }
+        return solutionCount;
+    }
+
+    /**
+     * Returns true iff the last search stopped because it ran out of steps, 
+     * so that a solution or a count below the cap may have been missed.
+     */
+    public boolean isBudgetSpent()
+    {
+        return budgetSpent;
+    }
+
+    /**
+     * Returns the i-th solution found by the last search as a grid of water and air.
+     */
+    public Space[][] getSolution(int i)
+    {
+        byte[] solution = solutions.get(i);
+        Space[][] spaces = new Space[size][size];
+        for (int segment = 0; segment < segmentCount; ++segment)
+            for (int column : segmentColumns[segment])
+                spaces[segmentRows[segment]][column] = solution[segment] == WATER ? Space.WATER : Space.AIR;
+        return spaces;
+    }
+
+    /**
+     * Returns the number of search nodes visited by the last call to solve.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Writes the result of the last search into the spaces of p,
+     * which must be the puzzle this solver was created for.
+     * If a solution was found every square of the first one becomes water or air;
+     * otherwise only the squares decided before the search gave up are marked.
+     * This is a single move, which p can undo.
+     */
+    public void writeTo(Aquarium p)
+    {
+        byte[] result = solutions.isEmpty() ? deduced : solutions.get(0);
+        p.beginMove();
+        p.clear();
+        for (int segment = 0; segment < segmentCount; ++segment) {
+            for (int column : segmentColumns[segment]) {
+                if (result[segment] == WATER)
+                    p.leftClick(segmentRows[segment], column);
+                else if (result[segment] == AIR)
+                    p.rightClick(segmentRows[segment], column);
+            }
+        }
+        p.endMove();
+    }
+
+    /**
+     * Propagates from the current states, then guesses and recurses.
+     * Returns true iff the search should stop, because enough solutions
+     * were found or the budget is spent.
+     */
+    private boolean search()
+    {
+        if (steps >= maxSteps) {
+            budgetSpent = true;
+            return true;
+        }
+        steps++;
+
+        if (!propagate())
+            return false;
+
+        int guess = -1;
+        for (int segment = 0; segment < segmentCount; ++segment) {
+            if (states[segment] == UNKNOWN && (guess == -1 || segmentWidths[segment] > segmentWidths[guess]))
+                guess = segment;
+        }
+        if (guess == -1) {
+            solutions.add(states.clone());
+            solutionCount++;
+            return solutionCount >= cap;
+        }
+
+        // each segment is decided at most once on the way down, so undoing the trail back to mark
+        // puts the states back without copying them
+        int mark = trailSize;
+        if (assign(guess, WATER) && search())
+            return true;
+        undo(mark);
+        if (assign(guess, AIR) && search())
+            return true;
+        undo(mark);
+        return false;
+    }
+
+    /**
+     * Makes every segment decided since the trail held mark entries undecided again.
+     */
+    private void undo(int mark)
+    {
+        while (trailSize > mark)
+            states[trail[--trailSize]] = UNKNOWN;
+    }
+
+    /**
+     * Sets segment to state, along with everything gravity then forces in its aquarium:
+     * water fills every row below, and air empties every row above.
+     * Returns false if this contradicts a segment already decided.
+     */
+    private boolean assign(int segment, byte state)
+    {
+        while (segment != -1) {
+            if (states[segment] == state)
+                return true;
+            if (states[segment] != UNKNOWN)
+                return false;
+            states[segment] = state;
+            trail[trailSize++] = segment;
+            segment = state == WATER ? segmentBelow[segment] : segmentAbove[segment];
+        }
+        return true;
+    }
+
+    /**
+     * Applies the row and column rules until nothing changes.
+     * Returns false if the current states cannot lead to a solution.
+     */
+    private boolean propagate()
+    {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = 0; row < size; ++row) {
+                int result = propagateRow(row);
+                if (result < 0)
+                    return false;
+                changed |= result > 0;
+            }
+            for (int column = 0; column < size; ++column) {
+                int result = propagateColumn(column);
+                if (result < 0)
+                    return false;
+                changed |= result > 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decides what it can on Row row from its total.
+     * Returns -1 on a contradiction, 1 if any segment was decided, and 0 otherwise.
+     */
+    private int propagateRow(int row)
+    {
+        int need = rowTotals[row];
+        int undecidedCount = 0;
+        int undecidedWidth = 0;
+        for (int segment : rowSegments[row]) {
+            if (states[segment] == WATER)
+                need -= segmentWidths[segment];
+            else if (states[segment] == UNKNOWN) {
+                undecided[undecidedCount] = segment;
+                undecidedWidths[undecidedCount] = segmentWidths[segment];
+                undecidedCount++;
+                undecidedWidth += segmentWidths[segment];
+            }
+        }
+
+        if (need < 0 || need > undecidedWidth)
+            return -1;
+        if (undecidedCount == 0)
+            return 0;
+        if (need == 0)
+            return assignAll(undecidedCount, AIR);
+        if (need == undecidedWidth)
+            return assignAll(undecidedCount, WATER);
+
+        // a segment in every subset of the widths summing to need must be water; one in no subset must be air
+        if (!subsetSums.solve(need, undecidedWidths, undecidedCount))
+            return -1;
+
+        int result = 0;
+        for (int index = 0; index < undecidedCount; ++index) {
+            byte state = UNKNOWN;
+            if (subsetSums.isForcedIn(index))
+                state = WATER;
+            else if (subsetSums.isForcedOut(index))
+                state = AIR;
+
+            if (state != UNKNOWN && states[undecided[index]] == UNKNOWN) {
+                if (!assign(undecided[index], state))
+                    return -1;
+                result = 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decides what it can in Column column from its total.
+     * Returns -1 on a contradiction, 1 if any segment was decided, and 0 otherwise.
+     */
+    private int propagateColumn(int column)
+    {
+        int need = columnTotals[column];
+        int undecided = 0;
+        for (int segment : columnSegments[column]) {
+            if (states[segment] == WATER)
+                need--;
+            else if (states[segment] == UNKNOWN)
+                undecided++;
+        }
+
+        if (need < 0 || need > undecided)
+            return -1;
+        if (undecided == 0 || (need != 0 && need != undecided))
+            return 0;
+
+        // the remaining squares are either all air or all water
+        byte state = need == 0 ? AIR : WATER;
+        for (int segment : columnSegments[column]) {
+            if (states[segment] == UNKNOWN && !assign(segment, state))
+                return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * Sets the first count segments in undecided to state.
+     * Returns -1 on a contradiction, and 1 otherwise.
+     */
+    private int assignAll(int count, byte state)
+    {
+        for (int index = 0; index < count; ++index) {
+            if (!assign(undecided[index], state))
+                return -1;
+        }
+        return 1;
+    }
+}
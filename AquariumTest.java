@@ -2,6 +2,8 @@ import static org.junit.Assert.*;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
 import java.util.Arrays; 
 
 /**
@@ -109,6 +111,208 @@ public class AquariumTest
         assertEquals("wrong entry", -1, Arrays.mismatch(xs, new int[] {1,0,-1}));
     }
 
+    @Test
+    public void testparseLineSpacing() 
+    {
+        int[] xs = Aquarium.parseLine("  1   23\t456 7890 \r");
+        assertEquals("wrong size",   4, xs.length);
+        assertEquals("wrong entry", -1, Arrays.mismatch(xs, new int[] {1,23,456,7890}));
+
+        assertEquals("wrong size",   0, Aquarium.parseLine("   ").length);
+    }
+
+    @Test
+    public void testparseLineErrors() 
+    {
+        for (String bad : new String[] {"1 2x 3", "1 - 3", "1 99999999999"})
+        {
+            try
+            {
+                Aquarium.parseLine(bad);
+                fail("no exception for \"" + bad + "\"");
+            }
+            catch (NumberFormatException e)
+            {
+                assertTrue("no position in \"" + e.getMessage() + "\"", e.getMessage().startsWith("line 1, column "));
+            }
+        }
+        try
+        {
+            Aquarium.parseLine("1 2x 3");
+            fail("no exception");
+        }
+        catch (NumberFormatException e)
+        {
+            assertTrue("wrong position", e.getMessage().startsWith("line 1, column 4:"));
+        }
+    }
+
+    @Test
+    public void testMissingFile() 
+    {
+        try
+        {
+            new Aquarium("Examples/no_such_puzzle.txt");
+            fail("no exception");
+        }
+        catch (UncheckedIOException e)
+        {
+            assertTrue("no cause", e.getCause().getCause() instanceof NoSuchFileException);
+        }
+    }
+
+    @Test
+    public void testrollback() 
+    {
+        a6.leftClick(5, 0);
+        int mark = a6.mark();
+        a6.leftClick(5, 1);
+        a6.rightClick(5, 0);
+        int inner = a6.mark();
+        a6.clear();
+        assertEquals("wrong count", 0, a6.getRowCounts()[5]);
+        a6.rollback(inner);
+        assertEquals("wrong entry", Space.AIR,   a6.getSpaces()[5][0]);
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[5][1]);
+        a6.rollback(mark);
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[5][0]);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[5][1]);
+        assertEquals("wrong count", 1, a6.getRowCounts()[5]);
+        assertEquals("wrong count", 1, a6.getColumnCounts()[0]);
+        assertEquals("wrong bit",   Space.WATER, a6.getBitboard().get(5, 0));
+
+        a6.commit();
+        a6.leftClick(5, 0);
+        a6.rollback(0);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[5][0]);
+    }
+
+    @Test
+    public void testsnapshot() 
+    {
+        a6.leftClick(5, 0);
+        Aquarium.Snapshot before = a6.snapshot();
+        a6.leftClick(5, 1);
+        a6.clear();
+        a6.rightClick(0, 0);
+        a6.restore(before);
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[5][0]);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[5][1]);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[0][0]);
+        assertEquals("wrong count", 1, a6.getRowCounts()[5]);
+
+        // the snapshot is unchanged by moves made after restoring it
+        a6.leftClick(4, 4);
+        a6.restore(before);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[4][4]);
+        assertEquals("wrong bit",   Space.EMPTY, a6.getBitboard().get(4, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testrestoreOtherPuzzle() 
+    {
+        a6.restore(a4.snapshot());
+    }
+
+    @Test
+    public void testundo() 
+    {
+        assertFalse("can undo", a6.canUndo());
+        a6.leftClick(5, 0);
+        a6.rightClick(0, 0);
+        a6.leftClick(5, 1);
+        a6.clear();
+        assertEquals("wrong count", 0, a6.getRowCounts()[5]);
+
+        assertEquals("wrong squares", 3, a6.undo().length);
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[5][1]);
+        assertEquals("wrong entry", Space.AIR,   a6.getSpaces()[0][0]);
+        assertEquals("wrong count", 2, a6.getRowCounts()[5]);
+        int[] squares = a6.undo();
+        assertEquals("wrong squares", 1, squares.length);
+        assertEquals("wrong square", 5 * 6 + 1, squares[0]);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[5][1]);
+
+        assertTrue  ("can't redo", a6.canRedo());
+        a6.redo();
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[5][1]);
+        a6.redo();
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[0][0]);
+        assertFalse ("can redo", a6.canRedo());
+        assertEquals("wrong squares", 0, a6.redo().length);
+
+        // a new move forgets what could have been redone
+        a6.undo();
+        a6.rightClick(3, 3);
+        assertFalse ("can redo", a6.canRedo());
+        a6.undo();
+        a6.undo();
+        a6.undo();
+        a6.undo();
+        assertFalse ("can undo", a6.canUndo());
+        assertEquals("wrong count", 0, a6.getRowCounts()[5]);
+        assertEquals("wrong entry", Space.EMPTY, a6.getSpaces()[0][0]);
+    }
+
+    @Test
+    public void testundoSolve() 
+    {
+        // writing a solution is a single move
+        a6.leftClick(0, 0);
+        CheckSolution.solve(a6, 1000);
+        a6.undo();
+        assertEquals("wrong entry", Space.WATER, a6.getSpaces()[0][0]);
+        assertEquals("wrong count", 1, a6.getRowCounts()[0]);
+        assertEquals("wrong count", 0, a6.getRowCounts()[5]);
+    }
+
+    @Test
+    public void testundoBounded() 
+    {
+        // far more moves than the history holds: the latest are kept, and undo stays consistent
+        for (int i = 0; i < 100000; i++)
+            a6.leftClick(i % 6, i / 6 % 6);
+        int undone = 0;
+        while (a6.canUndo())
+        {
+            a6.undo();
+            undone++;
+        }
+        assertTrue("too few moves kept", undone > 1000);
+        assertTrue("too many moves kept", undone < 100000);
+        for (int r = 0; r < 6; r++)
+        {
+            int count = 0;
+            for (int c = 0; c < 6; c++)
+                if (a6.getSpaces()[r][c] == Space.WATER)
+                    count++;
+            assertEquals("wrong count", count, a6.getRowCounts()[r]);
+        }
+    }
+
+    @Test
+    public void testisAquariumValid() 
+    {
+        // aquarium 1 of a6 spans rows 0 and 1
+        assertTrue  ("wrong validity", a6.isAquariumValid(1));
+        a6.leftClick(0, 0);
+        assertFalse ("wrong validity", a6.isAquariumValid(1));
+        assertEquals("wrong validity", !a6.isAquariumValid(1), !CheckSolution.isAquariumOK(a6, 1).isEmpty());
+        a6.leftClick(0, 1);
+        a6.leftClick(1, 0);
+        a6.leftClick(1, 1);
+        a6.leftClick(1, 2);
+        assertTrue  ("wrong validity", a6.isAquariumValid(1));
+        a6.undo();
+        assertFalse ("wrong validity", a6.isAquariumValid(1));
+        Aquarium.Snapshot snapshot = a6.snapshot();
+        a6.clear();
+        assertTrue  ("wrong validity", a6.isAquariumValid(1));
+        a6.restore(snapshot);
+        assertFalse ("wrong validity", a6.isAquariumValid(1));
+        assertTrue  ("wrong validity", a6.isAquariumValid(99));
+    }
+
     @Test
     public void testleftClick() 
     {
@@ -174,4 +378,109 @@ public class AquariumTest
         a4.clear();
         testAquarium();
     }
+
+    @Test
+    public void testCounts() 
+    {
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getRowCounts(),    new int[] {0,0,0,0,0,0}));
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getColumnCounts(), new int[] {0,0,0,0,0,0}));
+        for (int r = 0; r < 6; r++)
+            for (int c = r; c < 6; c++)
+                a6.leftClick(r,c);
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getRowCounts(),    new int[] {6,5,4,3,2,1}));
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getColumnCounts(), new int[] {1,2,3,4,5,6}));
+        // air replaces water, and a second right click empties the square
+        a6.rightClick(0,0);
+        a6.rightClick(5,5);
+        a6.rightClick(5,5);
+        a6.leftClick(5,0);
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getRowCounts(),    new int[] {5,5,4,3,2,1}));
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getColumnCounts(), new int[] {1,2,3,4,5,5}));
+        assertTrue  ("row satisfied",      a6.isRowSatisfied(3));
+        assertFalse ("row unsatisfied",    a6.isRowSatisfied(0));
+        assertFalse ("column unsatisfied", a6.isColumnSatisfied(0));
+        a6.leftClick(1,0);
+        assertTrue  ("column satisfied",   a6.isColumnSatisfied(0));
+        a6.clear();
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getRowCounts(),    new int[] {0,0,0,0,0,0}));
+        assertEquals("wrong entry", -1, Arrays.mismatch(a6.getColumnCounts(), new int[] {0,0,0,0,0,0}));
+    }
+
+    @Test
+    public void testRegions() 
+    {
+        // Aquarium 3 in a6 covers 2,2 3,2 3,3 3,4 4,2 4,3 5,1 5,2
+        AquariumRegion region = a6.getRegion(3);
+        assertTrue  ("null region",     region != null);
+        assertEquals("wrong number", 3, region.getNumber());
+        assertEquals("wrong count",  8, region.getCellCount());
+        assertEquals("wrong top",    2, region.getTop());
+        assertEquals("wrong bottom", 5, region.getBottom());
+        assertEquals("wrong left",   1, region.getLeft());
+        assertEquals("wrong right",  4, region.getRight());
+        assertEquals("wrong rows",   4, region.getRowCount());
+        assertEquals("wrong row",    3, region.getRow(1));
+        assertEquals("wrong width",  3, region.getRowWidth(1));
+        assertEquals("wrong span",   2, region.getMinColumn(1));
+        assertEquals("wrong span",   4, region.getMaxColumn(1));
+        assertEquals("not on row",  -1, region.getRowIndex(0));
+        assertEquals("wrong index",  3, region.getRowIndex(5));
+        // every square on the board is indexed exactly once, under its own aquarium
+        int cells = 0;
+        for (AquariumRegion each : a6.getRegions())
+            if (each != null)
+                for (int k = 0; k < each.getCellCount(); k++)
+                {
+                    assertEquals("wrong square", each.getNumber(), 
+                                 a6.getAquariums()[each.getCellRow(k)][each.getCellColumn(k)]);
+                    cells++;
+                }
+        assertEquals("wrong total", 36, cells);
+        assertTrue  ("no aquarium 0", a6.getRegion(0) == null);
+        assertTrue  ("no aquarium 7", a6.getRegion(7) == null);
+    }
+
+    @Test
+    public void testBitboard() 
+    {
+        testclear();
+        for (int i = 0; i < 6; i++)
+            for (int j = 0; j < 6; j++)
+                if ((i * j) % 3 == 1)      a6.leftClick(i,j);
+                else if ((i + j) % 4 == 0) a6.rightClick(i,j);
+        for (int i = 0; i < 6; i++)
+        {
+            for (int j = 0; j < 6; j++)
+                assertEquals("wrong entry", a6.getSpaces()[i][j], a6.getBitboard().get(i,j));
+            assertEquals("wrong count", a6.getRowCounts()[i], a6.getBitboard().countWater(i));
+        }
+        // rows wider than one word
+        Bitboard wide = new Bitboard(130);
+        assertEquals("wrong words", 3, wide.getWordsPerRow());
+        wide.set(7, 0, Space.WATER);
+        wide.set(7, 64, Space.WATER);
+        wide.set(7, 129, Space.AIR);
+        assertEquals("wrong entry", Space.WATER, wide.get(7, 64));
+        assertEquals("wrong entry", Space.AIR,   wide.get(7, 129));
+        assertEquals("wrong entry", Space.EMPTY, wide.get(7, 128));
+        assertEquals("wrong count", 2, wide.countWater(7));
+        assertEquals("wrong count", 1, wide.countAir(7));
+        long[] mask = {1L, 1L, 0L};
+        assertEquals("all water", 1, wide.rowStatus(7, mask, 0));
+        mask[2] = 1L << 1;
+        assertEquals("mixed",     3, wide.rowStatus(7, mask, 0));
+        assertEquals("no water",  2, wide.rowStatus(6, mask, 0));
+    }
+
+    @Test
+    public void testtoText() throws java.io.IOException
+    {
+        // the text is the file, and a puzzle built from the arrays matches the one read
+        String file = new String(java.nio.file.Files.readAllBytes(java.nio.file.Paths.get("Examples/a6_1.txt")));
+        assertEquals("wrong text", file.replace("\r", "").trim(), a6.toText().trim());
+        Aquarium copy = new Aquarium(a6.getColumnTotals(), a6.getRowTotals(), a6.getAquariums());
+        assertEquals("wrong text", a6.toText(), copy.toText());
+        assertEquals("wrong size", 6, copy.getSize());
+        assertEquals("wrong entry", Space.EMPTY, copy.getSpaces()[5][5]);
+    }
 }
@@ -1,6 +1,7 @@
 
 /**
  * AquariumViewer represents an interface for playing a game of Aquarium.
+ * Ctrl+Z undoes a move, and Ctrl+Y or Ctrl+Shift+Z redoes it.
  *
  * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
  * @version 1.0
@@ -8,14 +9,17 @@
 import java.awt.*;
 import java.awt.event.*; 
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.util.Arrays;
 
-public class AquariumViewer implements MouseListener
+public class AquariumViewer implements MouseListener, KeyListener
 {
     // ALL UI scaling is relative to BOXSIZE [UI looks best when it's a multiple of 40]
     private final int BOXSIZE = 40;          // the size of each square 
     private final int OFFSET  = BOXSIZE * 2; // the gap around the board
     private final int aquariumBorderWidth = BOXSIZE/10;
     private final int columnNumberSpacer = BOXSIZE/4;
+    private final int FRAMERATE = 60;        // the most times a second the window is repainted
 
     private       int WINDOWSIZE;            // set this in the constructor 
     private       int FAROFFSET; // Distance along an axis to get to the offset at the other end
@@ -23,6 +27,12 @@ public class AquariumViewer implements MouseListener
     private Aquarium puzzle; // the internal representation of the puzzle
     private int        size; // the puzzle is size x size
     private SimpleCanvas sc; // the display window
+    private SimpleCanvas staticLayer; // what never changes during play, drawn once per puzzle and theme
+
+    private int[][] aquariums;          // the board in aquariums
+    private int[][] squareBorders;      // the rectangles of each square's borders, indexed by r * size + c
+    private int[][] borders;            // the rectangles of each aquarium's borders, indexed by aquarium number
+    private boolean[] bordersDrawnGood; // the validity each aquarium's borders were last drawn for
 
     private String lastSolvedStatus;
 
@@ -78,17 +88,45 @@ public class AquariumViewer implements MouseListener
     /**
      * Main constructor for objects of class AquariumViewer.
      * Sets all fields, and displays the initial puzzle.
+     * With no display, the puzzle is drawn only in memory, and can be saved with saveImage.
      */
     public AquariumViewer(Aquarium puzzle)
+    {
+        this(puzzle, true);
+    }
+
+    /**
+     * Creates a viewer which draws puzzle into memory, never in a window, even if there is a display.
+     * Any number of these can be drawing at once, on different threads.
+     */
+    public static AquariumViewer createOffscreen(Aquarium puzzle)
+    {
+        return new AquariumViewer(puzzle, false);
+    }
+
+    /**
+     * Sets all fields, and displays the initial puzzle, in a window if window is true.
+     */
+    private AquariumViewer(Aquarium puzzle, boolean window)
     {
         lastSolvedStatus = "";
         this.puzzle = puzzle;
         size = puzzle.getSize();
+        aquariums = puzzle.getAquariums();
+        bordersDrawnGood = new boolean[puzzle.getPuzzle().getRegionCount()];
         WINDOWSIZE = size * BOXSIZE + 2*OFFSET;
         FAROFFSET = WINDOWSIZE - OFFSET;
+        findBorders();
 
-        sc = new SimpleCanvas("Aquarium Game", WINDOWSIZE, WINDOWSIZE, bgColour);
-        sc.addMouseListener(this);
+        if (window) {
+            sc = new SimpleCanvas("Aquarium Game", WINDOWSIZE, WINDOWSIZE, bgColour);
+            sc.addMouseListener(this);
+            sc.addKeyListener(this);
+            sc.setFrameRate(FRAMERATE);
+        }
+        else {
+            sc = new SimpleCanvas(WINDOWSIZE, WINDOWSIZE, bgColour);
+        }
 
         int fontScaleFactor = 3;        
         sc.setFont(new Font("Serif", Font.BOLD, BOXSIZE / fontScaleFactor)); 
@@ -140,28 +178,70 @@ public class AquariumViewer implements MouseListener
         return sc;
     }
 
+    /**
+     * Redraws the whole puzzle, for when it has been changed other than through the viewer,
+     * e.g. by a solver.
+     */
+    public void refresh()
+    {
+        displayPuzzle();
+    }
+
+    /**
+     * Writes the picture of the puzzle to the file named filename, as a PNG.
+     */
+    public void saveImage(String filename) throws IOException
+    {
+        sc.save(filename);
+    }
+
     /**
      * Displays the initial puzzle; see the LMS page for the format.
+     * The whole puzzle is drawn as one frame, so the window is repainted once.
      */
     private void displayPuzzle()
     {
-        sc.drawRectangle(0, 0, WINDOWSIZE, WINDOWSIZE, bgColour);
+        sc.beginFrame();
+        sc.drawImage(staticLayer.getImage(), 0, 0);
 
+        Space[][] spaces = puzzle.getSpaces();
         for (int r = 0; r < size; ++r) {
             for (int c = 0; c < size; ++c) {
-                updateSquare(r, c);
+                if (spaces[r][c] != Space.EMPTY)
+                    updateSquare(r, c);
             }
         }
-        displayGrid();
         displayNumbers();
         displayAquariums();
-        displayButtons();
+        displayStatus();
+        sc.endFrame();
+    }
+
+    /**
+     * Draws the parts of the window which do not change during play onto staticLayer:
+     * the background, the grid and the buttons. 
+     * setStyle calls it again, as the colours change.
+     */
+    private void drawStaticLayer()
+    {
+        staticLayer = new SimpleCanvas(WINDOWSIZE, WINDOWSIZE, bgColour);
+        staticLayer.setFont(sc.getFont());
+        displayGrid(staticLayer);
+        displayButtons(staticLayer);
     }
 
     /**
      * Displays the grid in the middle of the window.
      */
     public void displayGrid()
+    {
+        displayGrid(sc);
+    }
+
+    /**
+     * Displays the grid on canvas.
+     */
+    private void displayGrid(SimpleCanvas canvas)
     {
         for (int colrowIndex = 0; colrowIndex < size + 1; ++colrowIndex) {
             int xColBegin = OFFSET + BOXSIZE * colrowIndex;
@@ -170,7 +250,7 @@ public class AquariumViewer implements MouseListener
             int xColEnd = xColBegin;
             int yColEnd = FAROFFSET;
 
-            sc.drawLine(xColBegin, yColBegin, xColEnd, yColEnd, gridColour);
+            canvas.drawLine(xColBegin, yColBegin, xColEnd, yColEnd, gridColour);
 
             int xRowBegin = OFFSET;
             int yRowBegin = OFFSET + BOXSIZE * colrowIndex; // rows = column = size so OK to do
@@ -178,7 +258,7 @@ public class AquariumViewer implements MouseListener
             int xRowEnd = FAROFFSET;
             int yRowEnd = yRowBegin;
 
-            sc.drawLine(xRowBegin, yRowBegin, xRowEnd, yRowEnd, gridColour);
+            canvas.drawLine(xRowBegin, yRowBegin, xRowEnd, yRowEnd, gridColour);
         }
     }
 
@@ -187,34 +267,46 @@ public class AquariumViewer implements MouseListener
      */
     public void displayNumbers()
     {
-        // Distance from the border of the grid that the numbers appear
-        int rowNumberSpacer = BOXSIZE/2;
+        for (int column = 0; column < size; ++column)
+            displayColumnNumber(column);
+        for (int row = 0; row < size; ++row)
+            displayRowNumber(row);
+    }
 
-        int[] columnCounts = CheckSolution.columnCounts(puzzle);
-        for (int column = 0; column < size; ++column) {
-            int x = OFFSET + BOXSIZE * column + BOXSIZE / 2;
-            int y = OFFSET - columnNumberSpacer;
+    /**
+     * Displays the total above Column column, coloured by whether the column meets it.
+     * The number is always the same, so drawing it again in the new colour covers the old one.
+     */
+    private void displayColumnNumber(int column)
+    {
+        int x = OFFSET + BOXSIZE * column + BOXSIZE / 2;
+        int y = OFFSET - columnNumberSpacer;
 
-            int desiredColumnCount = puzzle.getColumnTotals()[column];
-            Color c;
-            if (desiredColumnCount != columnCounts[column])  c = incorrectNumberColour;
-            else                                             c = correctNumberColour;
+        int desiredColumnCount = puzzle.getPuzzle().getColumnTotal(column);
+        Color c;
+        if (!puzzle.isColumnSatisfied(column))  c = incorrectNumberColour;
+        else                                    c = correctNumberColour;
 
-            sc.drawString(desiredColumnCount, x, y, c);
-        }
+        sc.drawString(desiredColumnCount, x, y, c);
+    }
+
+    /**
+     * Displays the total beside Row row, coloured by whether the row meets it.
+     */
+    private void displayRowNumber(int row)
+    {
+        // Distance from the border of the grid that the numbers appear
+        int rowNumberSpacer = BOXSIZE/2;
 
-        int[] rowCounts = CheckSolution.rowCounts(puzzle);
-        for (int row = 0; row < size; ++row) {
-            int x = OFFSET - rowNumberSpacer;
-            int y = OFFSET + BOXSIZE * row + BOXSIZE / 2;
+        int x = OFFSET - rowNumberSpacer;
+        int y = OFFSET + BOXSIZE * row + BOXSIZE / 2;
 
-            int desiredRowCount = puzzle.getRowTotals()[row];
-            Color c;
-            if (desiredRowCount != rowCounts[row])  c = incorrectNumberColour;
-            else                                    c = correctNumberColour;
+        int desiredRowCount = puzzle.getPuzzle().getRowTotal(row);
+        Color c;
+        if (!puzzle.isRowSatisfied(row))  c = incorrectNumberColour;
+        else                              c = correctNumberColour;
 
-            sc.drawString(puzzle.getRowTotals()[row], x, y, c);
-        }
+        sc.drawString(desiredRowCount, x, y, c);
     }
 
     /**
@@ -233,104 +325,166 @@ public class AquariumViewer implements MouseListener
      */
     public void displayAquariums()
     {
-        int[][] aquariums = puzzle.getAquariums();
-
-        for (int row = 0; row < aquariums.length; ++row) {
-            for (int column = 0; column < aquariums.length; ++column) {
-
-                Color borderColour;
-                if (CheckSolution.isAquariumOK(puzzle, aquariums[row][column]).isEmpty())
-                    borderColour = aquariumGoodColour;
-                else
-                    borderColour = aquariumBadColour;
-
-                // Note to marker:
-                //      Our aquariums have dynamic border colours depending on if they're valid.
-                //      We therefore have to render UP, DOWN, LEFT and RIGHT border of each aquarium independently.
-
-                // Right
-                if (column + 1 == size || 
-                aquariums[row][column] != aquariums[row][column + 1]) {
-                    int x1 = OFFSET + (column + 1) * BOXSIZE;
-                    int y1 = OFFSET + row * BOXSIZE;
-                    int x2 = OFFSET + (column + 1) * BOXSIZE;
-                    int y2 = OFFSET + (row + 1) * BOXSIZE;
-                    int thisBorderWidth = aquariumBorderWidth;
-                    if (column + 1 != size) {
-                        x1 -= aquariumBorderWidth / 4;
-                        x2 = x1;
-                        thisBorderWidth = aquariumBorderWidth / 2;
-                    } 
-
-                    drawLineAsRectangle(x1, y1, x2, y2, thisBorderWidth, borderColour, true);
-                }
-
-                // Up
-                if (row == 0 || 
-                aquariums[row][column] != aquariums[row - 1][column]) {
-
-                    int x1 = OFFSET + column * BOXSIZE;
-                    int y1 = OFFSET + row * BOXSIZE;
-                    int x2 = OFFSET + (column + 1) * BOXSIZE;
-                    int y2 = OFFSET + row * BOXSIZE;
-                    int thisBorderWidth = aquariumBorderWidth;
-                    if (row != 0) {
-                        y1 += aquariumBorderWidth / 4;
-                        y2 = y1;
-                        thisBorderWidth = aquariumBorderWidth / 2;
-                    } 
-
-                    drawLineAsRectangle(x1, y1, x2, y2, thisBorderWidth, borderColour, false);
-                }
-
-                // Left
-                if (column == 0 || 
-                aquariums[row][column] != aquariums[row][column - 1]) {
-                    int x1 = OFFSET + column * BOXSIZE;
-                    int y1 = OFFSET + row * BOXSIZE;
-                    int x2 = OFFSET + column * BOXSIZE;
-                    int y2 = OFFSET + (row + 1) * BOXSIZE;
-                    int thisBorderWidth = aquariumBorderWidth;
-                    if (column != 0) {
-                        x1 += aquariumBorderWidth / 4;
-                        x2 = x1;
-                        thisBorderWidth = aquariumBorderWidth / 2;
-                    } 
-
-                    drawLineAsRectangle(x1, y1, x2, y2, thisBorderWidth, borderColour, true);
-                }
-
-                // Down
-                if (row + 1 == size || 
-                aquariums[row][column] != aquariums[row + 1][column]) {
-                    int x1 = OFFSET + column * BOXSIZE;
-                    int y1 = OFFSET + (row + 1) * BOXSIZE;
-                    int x2 = OFFSET + (column + 1) * BOXSIZE;
-                    int y2 = OFFSET + (row + 1) * BOXSIZE;
-                    int thisBorderWidth = aquariumBorderWidth;
-                    if (row + 1 != size) {
-                        y1 -= aquariumBorderWidth / 4;
-                        y2 = y1;
-                        thisBorderWidth = aquariumBorderWidth / 2;
-                    } 
-
-                    drawLineAsRectangle(x1, y1, x2, y2, thisBorderWidth, borderColour, false);
-                }
+        for (int t = 0; t < borders.length; ++t) {
+            if (borders[t] != null)
+                displayAquarium(t);
+        }
+    }
+
+    /**
+     * Displays the borders of the aquarium numbered t, coloured by whether it is valid.
+     */
+    private void displayAquarium(int t)
+    {
+        bordersDrawnGood[t] = puzzle.isAquariumValid(t);
+        displayBorders(borders[t], bordersDrawnGood[t] ? aquariumGoodColour : aquariumBadColour);
+    }
+
+    /**
+     * Displays the rectangles in rectangles, given as x1,y1,x2,y2 in turn, in borderColour.
+     */
+    private void displayBorders(int[] rectangles, Color borderColour)
+    {
+        for (int i = 0; i < rectangles.length; i += 4)
+            sc.drawRectangle(rectangles[i], rectangles[i + 1], rectangles[i + 2], rectangles[i + 3], borderColour);
+    }
+
+    /**
+     * Works out where every border is drawn, once for the puzzle, 
+     * and fills in squareBorders and borders.
+     */
+    private void findBorders()
+    {
+        squareBorders = new int[size * size][];
+        for (int r = 0; r < size; ++r) {
+            for (int c = 0; c < size; ++c) {
+                squareBorders[r * size + c] = findSquareBorders(r, c);
+            }
+        }
+
+        borders = new int[puzzle.getPuzzle().getRegionCount()][];
+        for (int t = 0; t < borders.length; ++t) {
+            AquariumRegion region = puzzle.getRegion(t);
+            if (region == null)
+                continue;
+
+            int length = 0;
+            for (int k = 0; k < region.getCellCount(); ++k)
+                length += squareBorders[region.getCellRow(k) * size + region.getCellColumn(k)].length;
+            borders[t] = new int[length];
+            length = 0;
+            for (int k = 0; k < region.getCellCount(); ++k) {
+                int[] rectangles = squareBorders[region.getCellRow(k) * size + region.getCellColumn(k)];
+                System.arraycopy(rectangles, 0, borders[t], length, rectangles.length);
+                length += rectangles.length;
+            }
+        }
+    }
+
+    /**
+     * Returns the rectangles which draw the sides of Square row,column on the edge of its aquarium,
+     * as x1,y1,x2,y2 in turn. 
+     * Inner borders are drawn just inside the square, so redrawing one square never covers its neighbours'.
+     */
+    private int[] findSquareBorders(int row, int column)
+    {
+        // Note to marker:
+        //      Our aquariums have dynamic border colours depending on if they're valid.
+        //      We therefore have to render UP, DOWN, LEFT and RIGHT border of each aquarium independently.
+        int[] rectangles = new int[4 * 4];
+        int count = 0;
+
+        // Right
+        if (column + 1 == size || 
+        aquariums[row][column] != aquariums[row][column + 1]) {
+            int x = OFFSET + (column + 1) * BOXSIZE;
+            int thisBorderWidth = aquariumBorderWidth;
+            if (column + 1 != size) {
+                x -= aquariumBorderWidth / 4;
+                thisBorderWidth = aquariumBorderWidth / 2;
+            } 
+
+            count = addRectangle(rectangles, count, x - thisBorderWidth / 2, OFFSET + row * BOXSIZE,
+                                 x + thisBorderWidth / 2, OFFSET + (row + 1) * BOXSIZE);
+        }
+
+        // Up
+        if (row == 0 || 
+        aquariums[row][column] != aquariums[row - 1][column]) {
+            int y = OFFSET + row * BOXSIZE;
+            int thisBorderWidth = aquariumBorderWidth;
+            if (row != 0) {
+                y += aquariumBorderWidth / 4;
+                thisBorderWidth = aquariumBorderWidth / 2;
             } 
+
+            count = addRectangle(rectangles, count, OFFSET + column * BOXSIZE, y - thisBorderWidth / 2,
+                                 OFFSET + (column + 1) * BOXSIZE, y + thisBorderWidth / 2);
+        }
+
+        // Left
+        if (column == 0 || 
+        aquariums[row][column] != aquariums[row][column - 1]) {
+            int x = OFFSET + column * BOXSIZE;
+            int thisBorderWidth = aquariumBorderWidth;
+            if (column != 0) {
+                x += aquariumBorderWidth / 4;
+                thisBorderWidth = aquariumBorderWidth / 2;
+            } 
+
+            count = addRectangle(rectangles, count, x - thisBorderWidth / 2, OFFSET + row * BOXSIZE,
+                                 x + thisBorderWidth / 2, OFFSET + (row + 1) * BOXSIZE);
+        }
+
+        // Down
+        if (row + 1 == size || 
+        aquariums[row][column] != aquariums[row + 1][column]) {
+            int y = OFFSET + (row + 1) * BOXSIZE;
+            int thisBorderWidth = aquariumBorderWidth;
+            if (row + 1 != size) {
+                y -= aquariumBorderWidth / 4;
+                thisBorderWidth = aquariumBorderWidth / 2;
+            } 
+
+            count = addRectangle(rectangles, count, OFFSET + column * BOXSIZE, y - thisBorderWidth / 2,
+                                 OFFSET + (column + 1) * BOXSIZE, y + thisBorderWidth / 2);
         }
+
+        return Arrays.copyOf(rectangles, count);
+    }
+
+    /**
+     * Stores the rectangle x1,y1,x2,y2 in rectangles at count, and returns the count after it.
+     */
+    private static int addRectangle(int[] rectangles, int count, int x1, int y1, int x2, int y2)
+    {
+        rectangles[count++] = x1;
+        rectangles[count++] = y1;
+        rectangles[count++] = x2;
+        rectangles[count++] = y2;
+        return count;
     }
 
-    private void displayButton(String text, int x1, int y1, int x2, int y2, Color colour) {
-        sc.drawRectangle(x1, y1, x2, y2, colour);
+    private void displayButton(SimpleCanvas canvas, String text, int x1, int y1, int x2, int y2, Color colour) {
+        canvas.drawRectangle(x1, y1, x2, y2, colour);
         int buttonWidth = x2 - x1;
         int buttonHeight = y2 - y1;
-        sc.drawString(text, x1 + (buttonWidth / 4), y1 + (buttonHeight / 2), textColour);
+        canvas.drawString(text, x1 + (buttonWidth / 4), y1 + (buttonHeight / 2), textColour);
     }
 
     /**
      * Displays the buttons below the grid.
      */
     public void displayButtons()
+    {
+        displayButtons(sc);
+        displayStatus();
+    }
+
+    /**
+     * Displays the buttons on canvas, without the status line.
+     */
+    private void displayButtons(SimpleCanvas canvas)
     {
         int buttonGap = BOXSIZE / 2;
 
@@ -343,16 +497,13 @@ public class AquariumViewer implements MouseListener
         solvedY1 = buttonTop;
         solvedX2 = OFFSET + buttonWidth;
         solvedY2 = buttonBottom;
-        displayButton("SOLVED?", solvedX1, solvedY1, solvedX2, solvedY2, solvedButtonColour);
-
-        int solvedStatusSpacer = 15;
-        sc.drawString(lastSolvedStatus, solvedX1, buttonBottom + solvedStatusSpacer, textColour);
+        displayButton(canvas, "SOLVED?", solvedX1, solvedY1, solvedX2, solvedY2, solvedButtonColour);
 
         resetX1 = solvedX2 + buttonGap;
         resetY1 = buttonTop;
         resetX2 = resetX1 + buttonWidth;
         resetY2 = buttonBottom;
-        displayButton("CLEAR", resetX1, resetY1, resetX2, resetY2, resetButtonColour);
+        displayButton(canvas, "CLEAR", resetX1, resetY1, resetX2, resetY2, resetButtonColour);
 
         buttonTop = buttonGap;
         buttonBottom = OFFSET - buttonGap - columnNumberSpacer;
@@ -361,18 +512,32 @@ public class AquariumViewer implements MouseListener
         restyleY1 = buttonTop;
         restyleX2 = OFFSET + buttonWidth;
         restyleY2 = buttonBottom;
-        displayButton("RESTYLE", restyleX1, restyleY1, restyleX2, restyleY2, restyleButtonColour);
+        displayButton(canvas, "RESTYLE", restyleX1, restyleY1, restyleX2, restyleY2, restyleButtonColour);
 
         solveX1 = restyleX2 + buttonGap;
         solveY1 = buttonTop;
         solveX2 = solveX1 + buttonWidth;
         solveY2 = buttonBottom;
-        displayButton("AUTOSOLVE", solveX1, solveY1, solveX2, solveY2, autoSolveButtonColour);
+        displayButton(canvas, "AUTOSOLVE", solveX1, solveY1, solveX2, solveY2, autoSolveButtonColour);
+    }
+
+    /**
+     * Displays the result of the last check under the buttons, over whatever was there before.
+     */
+    private void displayStatus()
+    {
+        sc.beginFrame();
+        sc.drawImage(staticLayer.getImage(), 0, solvedY2, WINDOWSIZE, WINDOWSIZE);
+
+        int solvedStatusSpacer = 15;
+        sc.drawString(lastSolvedStatus, solvedX1, solvedY2 + solvedStatusSpacer, textColour);
+        sc.endFrame();
     }
 
     /**
      * Updates the display of Square r,c.  
      * Sets the display of this square to whatever is in the squares array. 
+     * The grid lines on its top and left are left showing, so the grid never needs redrawing.
      */
     public void updateSquare(int r, int c)
     {
@@ -383,13 +548,14 @@ public class AquariumViewer implements MouseListener
 
         switch(space) {
             case WATER:
-            sc.drawRectangle(x, y, x + BOXSIZE, y + BOXSIZE, waterColour);
+            sc.drawRectangle(x + 1, y + 1, x + BOXSIZE, y + BOXSIZE, waterColour);
             break;
             case AIR:
+            sc.drawImage(staticLayer.getImage(), x, y, x + BOXSIZE, y + BOXSIZE);
             sc.drawCircle(x + BOXSIZE/2 , y + BOXSIZE/2, BOXSIZE/4, airColour);
             break;
             case EMPTY:
-            sc.drawRectangle(x, y, x + BOXSIZE, y + BOXSIZE, bgColour);
+            sc.drawImage(staticLayer.getImage(), x, y, x + BOXSIZE, y + BOXSIZE);
             break;
         }
     }
@@ -399,6 +565,8 @@ public class AquariumViewer implements MouseListener
      * If it's on the board, make the appropriate move and update the screen display. 
      * If it's on SOLVED?,   check the solution and display the result. 
      * If it's on CLEAR,     clear the puzzle and update the screen display. 
+     * A move redraws only the square, its row and column totals and its aquarium's borders,
+     * so it takes the same time on any size of board.
      */
     public void mousePressed(MouseEvent e) 
     {
@@ -412,22 +580,74 @@ public class AquariumViewer implements MouseListener
 
             if (e.getButton() == 1) puzzle.leftClick(row, col);
             else if (e.getButton() == 3) puzzle.rightClick(row, col);
+            else return;
+            displayChanges(new int[] {row * size + col});
         }
         else if (x > solvedX1 && x < solvedX2 && y > solvedY1 && y < solvedY2) {
             lastSolvedStatus = CheckSolution.isSolution(puzzle);
+            displayStatus();
         }
-        else if (x > resetX1 && x < resetX2 && y > resetY1 && y < resetY2) {
-            puzzle.clear();
-            lastSolvedStatus = "";
-        }
-        else if (x > restyleX1 && x < restyleX2 && y > restyleY1 && y < restyleY2) {
-            currentTheme = currentTheme.next();
-            setStyle(currentTheme);
+        else {
+            if (x > resetX1 && x < resetX2 && y > resetY1 && y < resetY2) {
+                puzzle.clear();
+                lastSolvedStatus = "";
+            }
+            else if (x > restyleX1 && x < restyleX2 && y > restyleY1 && y < restyleY2) {
+                currentTheme = currentTheme.next();
+                setStyle(currentTheme);
+            }
+            else if (x > solveX1 && x < solveX2 && y > solveY1 && y < solveY2) {
+                puzzle = CheckSolution.solve(puzzle, 3000);
+            }
+            displayPuzzle();
         }
-        else if (x > solveX1 && x < solveX2 && y > solveY1 && y < solveY2) {
-            puzzle = CheckSolution.solve(puzzle, 3000);
+    }
+
+    /**
+     * Redraws the squares given, each as r * size + c, and whatever is drawn over them:
+     * the totals of their rows and columns, and their borders.
+     * An aquarium whose validity has changed since its borders were drawn has all its borders redrawn.
+     */
+    private void displayChanges(int[] squares)
+    {
+        sc.beginFrame();
+        for (int square : squares)
+            updateSquare(square / size, square % size);
+
+        for (int square : squares) {
+            int r = square / size;
+            int c = square % size;
+            int t = aquariums[r][c];
+            if (puzzle.isAquariumValid(t) != bordersDrawnGood[t])
+                displayAquarium(t);
+            else
+                displayBorders(squareBorders[square], bordersDrawnGood[t] ? aquariumGoodColour : aquariumBadColour);
+
+            displayRowNumber(r);
+            displayColumnNumber(c);
         }
-        displayPuzzle();
+        sc.endFrame();
+    }
+
+    /**
+     * Responds to a key press. 
+     * Ctrl+Z undoes the last move; Ctrl+Y or Ctrl+Shift+Z redoes the last move undone.
+     */
+    public void keyPressed(KeyEvent e)
+    {
+        if (!e.isControlDown() && !e.isMetaDown())
+            return;
+
+        int[] changed;
+        if (e.getKeyCode() == KeyEvent.VK_Z && !e.isShiftDown())
+            changed = puzzle.undo();
+        else if (e.getKeyCode() == KeyEvent.VK_Y || e.getKeyCode() == KeyEvent.VK_Z)
+            changed = puzzle.redo();
+        else
+            return;
+
+        if (changed.length > 0)
+            displayChanges(changed);
     }
 
     public void setStyle(ColourTheme theme) {
@@ -478,6 +698,7 @@ public class AquariumViewer implements MouseListener
             textColour = Color.white;
             break;
         }
+        drawStaticLayer();
     }
 
     public void mouseClicked(MouseEvent e) {}
@@ -487,4 +708,8 @@ public class AquariumViewer implements MouseListener
     public void mouseEntered(MouseEvent e) {}
 
     public void mouseExited(MouseEvent e) {}
+
+    public void keyReleased(KeyEvent e) {}
+
+    public void keyTyped(KeyEvent e) {}
 }
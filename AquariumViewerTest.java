@@ -3,6 +3,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import java.util.Arrays; 
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
 
 /**
  * This class provides unit test cases for the AquariumViewer class.
@@ -103,6 +107,38 @@ public class AquariumViewerTest
         }
     }
 
+    @Test
+    public void testsaveImage() throws Exception
+    {
+        Aquarium a = new Aquarium("Examples/a4_1.txt");
+        CheckSolution.solve(a, 100000);
+        AquariumViewer v = AquariumViewer.createOffscreen(a);
+        File file = File.createTempFile("aquarium", ".png");
+        try
+        {
+            v.saveImage(file.getPath());
+            BufferedImage image = ImageIO.read(file);
+            assertEquals("wrong size", 4 * 40 + 2 * 80, image.getWidth());
+            assertEquals("wrong size", 4 * 40 + 2 * 80, image.getHeight());
+            for (int r = 0; r < 4; r++)
+                for (int c = 0; c < 4; c++)
+                {
+                    // the middle of each square is water, or the background inside an air circle,
+                    // and 8 pixels to the right of the middle is water, or on the air circle
+                    boolean water = a.getSpaces()[r][c] == Space.WATER;
+                    assertNotEquals("unsolved square", Space.EMPTY, a.getSpaces()[r][c]);
+                    Color middle = new Color(image.getRGB(80 + 40 * c + 20, 80 + 40 * r + 20));
+                    assertEquals("wrong middle", water ? Color.cyan : Color.white, middle);
+                    Color ring = new Color(image.getRGB(80 + 40 * c + 20 + 8, 80 + 40 * r + 20));
+                    assertEquals("wrong circle", water ? Color.cyan : Color.pink, ring);
+                }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
     @Test
     public void testdisplaymethods() 
     {
@@ -0,0 +1,466 @@
+/**
+ * BatchRunner solves and checks whole directories of puzzles from the command line,
+ * with no display needed.
+ *
+ * Usage:
+ *     java BatchRunner [options] path...
+ * where each path is a puzzle file, a directory (every .txt file in it),
+ * or a glob such as "Examples/a15_*.txt". A file ending in .corpus is read as a
+ * PuzzleCorpus, and one ending in .aqb as a PuzzleArchive; each puzzle in them
+ * is reported as file#n. The options are
+ *     --solve          solve each puzzle (on unless only --unique is given)
+ *     --verify         solve each puzzle and check the result with CheckSolution.isSolution
+ *     --unique         check that each puzzle has exactly one solution
+ *     --levels         solve with LevelSolver instead of AquariumSolver
+ *     --threads n      use n worker threads (default: every core)
+ *     --steps n        give each solve a budget of n search nodes (default: 1000000)
+ *     --images dir     draw each puzzle, and its solution, as PNGs in dir, named
+ *                      like the pictures in Examples: a6_1.png and "a6_1 soln.png"
+ *     --quiet          print only the summary
+ * Puzzles are loaded, processed and drawn in parallel, with only a few per thread in memory
+ * at once, however large the corpus. A line is printed for each puzzle with its timings,
+ * then the throughput and the p50/p99 latencies. The puzzles of a corpus are reported
+ * in the order they are loaded, which may differ slightly from file order; those of
+ * an archive are loaded by number, each on the thread which processes it, and keep their order.
+ * The exit status is 1 if any puzzle failed to load, solve or verify.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchRunner
+{
+    private boolean solve;
+    private boolean verify;
+    private boolean unique;
+    private boolean levels;
+    private boolean quiet;
+    private int     threads;
+    private int     maxSteps;
+    private Path    images;  // the directory to draw the puzzles into, or null
+
+    private ArrayList<Path> files; // the puzzles to process, in the order given
+
+    // the puzzles submitted but not yet reported, oldest first; at most WINDOW per thread
+    private ArrayDeque<Future<Result>> inFlight;
+    private long[]  latencies;  // the total time of each puzzle reported, in nanoseconds
+    private int     reported;   // the number of puzzles reported
+    private boolean allPassed;  // whether every puzzle reported so far has passed
+
+    private static final int WINDOW = 4;
+
+    /**
+     * The outcome of processing one puzzle; times are in nanoseconds.
+     */
+    private static class Result
+    {
+        String  name;
+        int     size;
+        long    loadTime;
+        long    solveTime;
+        long    checkTime;
+        long    drawTime;
+        String  status = "";
+        boolean failed;
+
+        long totalTime()
+        {
+            return loadTime + solveTime + checkTime + drawTime;
+        }
+    }
+
+    /**
+     * The puzzles of a corpus, which the worker threads take one at a time in turn.
+     */
+    private static class PuzzleSource
+    {
+        final Path         file;
+        Iterator<Aquarium> puzzles;
+        int                number;    // the number of puzzles taken
+        volatile boolean   exhausted; // whether every puzzle has been taken
+
+        PuzzleSource(Path file)
+        {
+            this.file = file;
+            puzzles = new PuzzleCorpus(file.toString()).iterator();
+        }
+    }
+
+    /**
+     * Creates a runner from the command-line arguments.
+     */
+    public BatchRunner(String[] args) throws IOException
+    {
+        threads = Runtime.getRuntime().availableProcessors();
+        maxSteps = 1000000;
+        files = new ArrayList<Path>();
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--solve":   solve = true;   break;
+                case "--verify":  verify = true;  break;
+                case "--unique":  unique = true;  break;
+                case "--levels":  levels = true;  break;
+                case "--quiet":   quiet = true;   break;
+                case "--threads": threads = numberArgument(args, ++i); break;
+                case "--steps":   maxSteps = numberArgument(args, ++i); break;
+                case "--images":  images = Paths.get(optionArgument(args, ++i)); break;
+                default:
+                    if (args[i].startsWith("--"))
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                    addFiles(args[i]);
+            }
+        }
+        if (!solve && !verify && !unique) {
+            solve = true;
+            verify = true;
+        }
+        // there is nothing to verify until the puzzle has been solved
+        if (verify)
+            solve = true;
+    }
+
+    /**
+     * Returns args[i], the argument of the option before it.
+     * Throws an IllegalArgumentException if the option is the last argument.
+     */
+    private static String optionArgument(String[] args, int i)
+    {
+        if (i >= args.length)
+            throw new IllegalArgumentException(args[i - 1] + " needs an argument");
+        return args[i];
+    }
+
+    /**
+     * Returns args[i] as a number, the argument of the option before it.
+     * Throws an IllegalArgumentException if it is missing or not a number.
+     */
+    private static int numberArgument(String[] args, int i)
+    {
+        try {
+            return Integer.parseInt(optionArgument(args, i));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a number, not " + args[i]);
+        }
+    }
+
+    /**
+     * Adds the puzzle files named by path: a file, a directory, or a glob.
+     */
+    private void addFiles(String path) throws IOException
+    {
+        Path given = Paths.get(path);
+        if (Files.isDirectory(given)) {
+            addMatches(given, "*.txt");
+        }
+        else if (path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('[') >= 0) {
+            Path directory = given.getParent() == null ? Paths.get(".") : given.getParent();
+            addMatches(directory, given.getFileName().toString());
+        }
+        else {
+            files.add(given);
+        }
+    }
+
+    /**
+     * Adds the files in directory whose names match glob, in name order.
+     */
+    private void addMatches(Path directory, String glob) throws IOException
+    {
+        ArrayList<Path> matches = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream)
+                if (Files.isRegularFile(file))
+                    matches.add(file);
+        }
+        Collections.sort(matches);
+        files.addAll(matches);
+    }
+
+    /**
+     * Processes every puzzle and prints the report. Returns true iff none failed.
+     */
+    public boolean run() throws Exception
+    {
+        if (images != null)
+            Files.createDirectories(images);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        inFlight = new ArrayDeque<Future<Result>>();
+        latencies = new long[64];
+        reported = 0;
+        allPassed = true;
+        for (Path file : files) {
+            if (file.toString().endsWith(".corpus"))
+                submitCorpus(pool, file);
+            else if (file.toString().endsWith(".aqb"))
+                submitArchive(pool, file);
+            else
+                submit(pool, () -> process(file.toString(), () -> new Aquarium(file.toString()), 0));
+        }
+        while (!inFlight.isEmpty())
+            report(inFlight.removeFirst().get());
+        pool.shutdown();
+        long wallTime = System.nanoTime() - start;
+
+        long[] sorted = Arrays.copyOf(latencies, reported);
+        Arrays.sort(sorted);
+
+        System.out.printf("%d puzzles in %.3f s on %d threads: %.1f puzzles/s, p50 %.3f ms, p99 %.3f ms, %s%n",
+                          reported, wallTime / 1e9, threads, reported / (wallTime / 1e9),
+                          millis(percentile(sorted, 50)), millis(percentile(sorted, 99)),
+                          allPassed ? "all passed" : "FAILURES");
+        return allPassed;
+    }
+
+    /**
+     * Submits task to pool, first reporting the oldest puzzle in flight if there are already
+     * WINDOW per thread, so finished results never pile up.
+     */
+    private void submit(ExecutorService pool, Callable<Result> task) throws Exception
+    {
+        if (inFlight.size() >= WINDOW * threads)
+            report(inFlight.removeFirst().get());
+        inFlight.addLast(pool.submit(task));
+    }
+
+    /**
+     * Prints the line for result, unless it is null or quiet, and adds it to the totals.
+     */
+    private void report(Result result)
+    {
+        if (result == null)
+            return;
+        allPassed &= !result.failed;
+        if (!quiet || result.failed)
+            System.out.printf("%-40s %3d  load %9.3f ms  solve %9.3f ms  check %9.3f ms  %s%s%n",
+                              result.name, result.size, millis(result.loadTime),
+                              millis(result.solveTime), millis(result.checkTime),
+                              images == null ? "" : String.format("draw %9.3f ms  ", millis(result.drawTime)),
+                              result.status);
+
+        if (reported == latencies.length)
+            latencies = Arrays.copyOf(latencies, 2 * reported);
+        latencies[reported++] = result.totalTime();
+    }
+
+    /**
+     * Submits a task for each puzzle in an archive, which loads the puzzle by number and processes it.
+     * The archive can be read from any number of threads at once.
+     */
+    private void submitArchive(ExecutorService pool, Path file) throws Exception
+    {
+        PuzzleArchive archive;
+        try {
+            archive = new PuzzleArchive(file.toString());
+        }
+        catch (IOException e) {
+            submit(pool, () -> process(file.toString(), () -> { throw e; }, 0));
+            return;
+        }
+
+        for (int n = 0; n < archive.size(); ++n) {
+            int number = n;
+            submit(pool, () -> process(file + "#" + (number + 1), () -> archive.get(number), 0));
+        }
+    }
+
+    /**
+     * Submits tasks which each take the next puzzle of a corpus and process it,
+     * until the file is used up. Each puzzle is loaded by the worker thread which processes it.
+     */
+    private void submitCorpus(ExecutorService pool, Path file) throws Exception
+    {
+        PuzzleSource source;
+        try {
+            source = new PuzzleSource(file);
+        }
+        catch (UncheckedIOException e) {
+            submit(pool, () -> process(file.toString(), () -> { throw e; }, 0));
+            return;
+        }
+
+        while (!source.exhausted)
+            submit(pool, () -> processNext(source));
+    }
+
+    /**
+     * Takes the next puzzle of source and processes it, or returns null if there are none left.
+     * A puzzle which fails to load is reported as a failure, and ends the file.
+     */
+    private Result processNext(PuzzleSource source)
+    {
+        String name;
+        Callable<Aquarium> loader;
+        long loadTime;
+        synchronized (source) {
+            if (source.exhausted)
+                return null;
+            long time = System.nanoTime();
+            name = source.file + "#" + (source.number + 1);
+            try {
+                if (!source.puzzles.hasNext()) {
+                    source.exhausted = true;
+                    return null;
+                }
+                source.number++;
+                Aquarium puzzle = source.puzzles.next();
+                loader = () -> puzzle;
+            }
+            catch (RuntimeException e) {
+                source.exhausted = true;
+                loader = () -> { throw e; };
+            }
+            loadTime = System.nanoTime() - time;
+        }
+        return process(name, loader, loadTime);
+    }
+
+    /**
+     * Loads, solves and checks one puzzle as the options ask.
+     * The load time is loadTime plus the time taken by loader.
+     */
+    private Result process(String name, Callable<Aquarium> loader, long loadTime)
+    {
+        Result result = new Result();
+        result.name = name;
+        try {
+            long time = System.nanoTime();
+            Aquarium puzzle = loader.call();
+            result.loadTime = loadTime + System.nanoTime() - time;
+            result.size = puzzle.getSize();
+
+            AquariumViewer viewer = null;
+            if (images != null) {
+                time = System.nanoTime();
+                viewer = AquariumViewer.createOffscreen(puzzle);
+                viewer.saveImage(imageFile(name, "").toString());
+                result.drawTime = System.nanoTime() - time;
+            }
+
+            if (solve) {
+                time = System.nanoTime();
+                boolean solved;
+                if (levels) {
+                    LevelSolver solver = new LevelSolver(puzzle);
+                    solved = solver.solve(maxSteps);
+                    solver.writeTo(puzzle);
+                }
+                else {
+                    AquariumSolver solver = new AquariumSolver(puzzle);
+                    solved = solver.solve(maxSteps);
+                    solver.writeTo(puzzle);
+                }
+                result.solveTime = System.nanoTime() - time;
+                if (!solved) {
+                    result.status += "unsolved ";
+                    result.failed = true;
+                }
+
+                if (viewer != null) {
+                    time = System.nanoTime();
+                    viewer.refresh();
+                    viewer.saveImage(imageFile(name, " soln").toString());
+                    result.drawTime += System.nanoTime() - time;
+                }
+            }
+
+            time = System.nanoTime();
+            if (verify) {
+                String verdict = CheckSolution.isSolution(puzzle);
+                boolean correct = verdict.equals("\u2713\u2713\u2713");
+                result.status += correct ? "verified " : "\"" + verdict + "\" ";
+                result.failed |= !correct;
+            }
+            if (unique) {
+                int count = CheckSolution.countSolutions(puzzle, 2);
+                result.status += count == 1 ? "unique " : count == 0 ? "no solution " : "not unique ";
+                result.failed |= count != 1;
+            }
+            result.checkTime = System.nanoTime() - time;
+        }
+        catch (Exception e) {
+            result.status += "error: " + e;
+            result.failed = true;
+        }
+        result.status = result.status.trim();
+        return result;
+    }
+
+    /**
+     * Returns the file in images to draw the puzzle called name into, with suffix after its name:
+     * a6_1.txt becomes a6_1.png, and puzzle 3 of big.corpus becomes big_3.png.
+     */
+    private Path imageFile(String name, String suffix)
+    {
+        String base = Paths.get(name).getFileName().toString();
+        String number = "";
+        int hash = base.lastIndexOf('#');
+        if (hash >= 0) {
+            number = "_" + base.substring(hash + 1);
+            base = base.substring(0, hash);
+        }
+        int dot = base.lastIndexOf('.');
+        if (dot > 0)
+            base = base.substring(0, dot);
+        return images.resolve(base + number + suffix + ".png");
+    }
+
+    /**
+     * Returns the p-th percentile of the sorted values, or 0 if there are none.
+     */
+    private static long percentile(long[] sorted, int p)
+    {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     */
+    private static double millis(long nanos)
+    {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Runs a batch. See the class comment for the arguments.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        BatchRunner runner = null;
+        try {
+            if (args.length > 0)
+                runner = new BatchRunner(args);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+        if (runner == null) {
+            System.err.println("Usage: java BatchRunner [--solve] [--verify] [--unique] [--levels] "
+                               + "[--threads n] [--steps n] [--images dir] [--quiet] path...");
+            System.exit(1);
+        }
+        System.exit(runner.run() ? 0 : 1);
+    }
+}
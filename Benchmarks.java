@@ -0,0 +1,204 @@
+/**
+ * Benchmarks measures the hot paths of the game: parsing, loading, counting,
+ * validation, subset sums and solving, on every example size (4, 6, 10, 15)
+ * and on generated 30x30 and 60x60 boards.
+ *
+ * Each benchmark is warmed up, then timed over several measurement iterations.
+ * The report gives the mean time per operation, and the bytes allocated per operation
+ * and the allocation rate, read from the JVM's per-thread allocation counter.
+ *
+ * Run from the command line as
+ *     java Benchmarks [filter] [iterations]
+ * to run only the benchmarks whose name contains filter.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class Benchmarks
+{
+    private static final long WARMUP_NANOS    = 300_000_000L; // warm-up time per benchmark
+    private static final long ITERATION_NANOS = 200_000_000L; // time per measurement iteration
+    private static final int  MAX_LEVEL_SEARCH_SIZE = 15;     // the largest board solved by levels
+
+    // the results of the operations are folded into this, so the JIT cannot discard them
+    private static volatile long sink;
+
+    private String filter;     // only benchmarks whose name contains this are run
+    private int    iterations; // the number of measurement iterations per benchmark
+
+    private com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * One operation to be measured, returning any value which depends on its work.
+     */
+    private interface Operation
+    {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Creates a set of benchmarks running those whose name contains filter.
+     */
+    public Benchmarks(String filter, int iterations)
+    {
+        this.filter = filter;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Runs every benchmark on every board size.
+     */
+    public void runAll() throws Exception
+    {
+        System.out.printf("%-34s %5s %14s %12s %12s%n", "Benchmark", "size", "ns/op", "B/op", "MB/s alloc");
+
+        ArrayList<Path> files = new ArrayList<Path>();
+        for (String name : new String[] {"a4_1", "a6_1", "a10_1", "a15_1"})
+            files.add(Path.of("Examples", name + ".txt"));
+        for (int size : new int[] {30, 60}) {
+            Path file = Files.createTempFile("aquarium" + size + "_", ".txt");
+            file.toFile().deleteOnExit();
+            PuzzleGenerator.write(new PuzzleGenerator(size, size).generateSolvable(), file);
+            files.add(file);
+        }
+
+        for (Path file : files)
+            runOn(file);
+    }
+
+    /**
+     * Runs every benchmark on the puzzle in file.
+     */
+    private void runOn(Path file) throws Exception
+    {
+        final String filename = file.toString();
+        final Aquarium puzzle = new Aquarium(filename);
+        final int size = puzzle.getSize();
+        final String line = puzzle.toText().split("\n")[3];
+
+        measure("Aquarium.parseLine", size, () -> Aquarium.parseLine(line));
+        measure("Aquarium(String)", size, () -> new Aquarium(filename));
+        Path archiveFile = Files.createTempFile("aquarium" + size + "_", ".aqb");
+        archiveFile.toFile().deleteOnExit();
+        PuzzleArchive.write(Collections.singletonList(puzzle), archiveFile);
+        final PuzzleArchive archive = new PuzzleArchive(archiveFile.toString());
+        measure("PuzzleArchive.get", size, () -> archive.get(0));
+
+        // the checks are measured on a solved board, so that they do all of their work
+        CheckSolution.solve(puzzle, Integer.MAX_VALUE);
+        final int middle = puzzle.getAquariums()[size / 2][size / 2];
+        // eight moves undone through the trail, then the same through a snapshot
+        final Aquarium board = new Aquarium(puzzle.getPuzzle());
+        measure("Aquarium.rollback", size, () -> {
+            int mark = board.mark();
+            for (int column = 0; column < 8; ++column)
+                board.leftClick(size / 2, column % size);
+            board.rollback(mark);
+            return board;
+        });
+        measure("Aquarium.restore", size, () -> {
+            Aquarium.Snapshot snapshot = board.snapshot();
+            for (int column = 0; column < 8; ++column)
+                board.leftClick(size / 2, column % size);
+            board.restore(snapshot);
+            return board;
+        });
+
+        measure("CheckSolution.rowCounts", size, () -> CheckSolution.rowCounts(puzzle));
+        measure("CheckSolution.columnCounts", size, () -> CheckSolution.columnCounts(puzzle));
+        // the validity of each aquarium is kept between checks, so it is forgotten first to time the checks themselves
+        measure("CheckSolution.isAquariumOK", size, () -> {
+            puzzle.forgetValidity();
+            return CheckSolution.isAquariumOK(puzzle, middle);
+        });
+        measure("CheckSolution.isSolution", size, () -> {
+            puzzle.forgetValidity();
+            return CheckSolution.isSolution(puzzle);
+        });
+        measure("CheckSolution.isSolution cached", size, () -> CheckSolution.isSolution(puzzle));
+
+        // the segment widths of the row split into the most aquariums, on an empty board
+        Aquarium empty = new Aquarium(filename);
+        int widest = 0;
+        for (int row = 0; row < size; ++row) {
+            if (CheckSolution.aquariumRowPartition(empty, row).size()
+                > CheckSolution.aquariumRowPartition(empty, widest).size())
+                widest = row;
+        }
+        final ArrayList<Integer> widths = CheckSolution.condenseList(CheckSolution.aquariumRowPartition(empty, widest));
+        final int[] values = new int[widths.size()];
+        for (int i = 0; i < values.length; ++i)
+            values[i] = widths.get(i);
+        final int target = puzzle.getRowTotals()[widest];
+        final SubsetSums engine = new SubsetSums();
+        if (widths.size() <= 20)
+            measure("CheckSolution.subsetSums", size, () -> CheckSolution.subsetSums(target, widths));
+        measure("SubsetSums.solve", size, () -> engine.solve(target, values, values.length));
+
+        measure("CheckSolution.solve", size, () -> CheckSolution.solve(puzzle, Integer.MAX_VALUE));
+        // the level search has no row propagation, and can run for minutes on the generated boards
+        if (size <= MAX_LEVEL_SEARCH_SIZE)
+            measure("CheckSolution.solveByLevels", size, () -> CheckSolution.solveByLevels(puzzle, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Warms up and then measures operation, printing one line of results.
+     */
+    private void measure(String name, int size, Operation operation) throws Exception
+    {
+        if (!name.contains(filter))
+            return;
+
+        long thread = Thread.currentThread().getId();
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end)
+            consume(operation.run());
+
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int iteration = 0; iteration < iterations; ++iteration) {
+            long startBytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            end = start + ITERATION_NANOS;
+            long now = start;
+            while (now < end) {
+                consume(operation.run());
+                operations++;
+                now = System.nanoTime();
+            }
+            nanos += now - start;
+            bytes += threads.getThreadAllocatedBytes(thread) - startBytes;
+        }
+
+        System.out.printf("%-34s %5d %14.1f %12.1f %12.1f%n", name, size,
+                          (double) nanos / operations, (double) bytes / operations,
+                          bytes / (nanos / 1e9) / (1 << 20));
+    }
+
+    /**
+     * Folds result into the sink.
+     */
+    private static void consume(Object result)
+    {
+        sink += result == null ? 0 : result.hashCode();
+    }
+
+    /**
+     * Runs the benchmarks. Usage: java Benchmarks [filter] [iterations]
+     */
+    public static void main(String[] args) throws Exception
+    {
+        String filter = args.length > 0 ? args[0] : "";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        new Benchmarks(filter, iterations).runAll();
+    }
+}
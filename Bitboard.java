@@ -0,0 +1,145 @@
+/**
+ * Bitboard holds the water and air spaces of an Aquarium board as bitsets,
+ * one run of long words per row, so that a row can be counted with a popcount
+ * and a row of an aquarium can be tested against a mask in a few word operations.
+ * Boards wider than 64 squares use several words per row.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+
+public class Bitboard
+{
+    private int    size;         // the board is size x size
+    private int    wordsPerRow;  // the number of longs used for each row
+    private long[] water;        // bit c of row r is set iff r,c is water
+    private long[] air;          // bit c of row r is set iff r,c is air
+
+    /**
+     * Creates an empty size x size board.
+     */
+    public Bitboard(int size)
+    {
+        this.size = size;
+        wordsPerRow = wordsFor(size);
+        water = new long[size * wordsPerRow];
+        air = new long[size * wordsPerRow];
+    }
+
+    /**
+     * Creates a copy of other.
+     */
+    public Bitboard(Bitboard other)
+    {
+        size = other.size;
+        wordsPerRow = other.wordsPerRow;
+        water = other.water.clone();
+        air = other.air.clone();
+    }
+
+    /**
+     * Returns the number of longs needed to hold one bit for each of width squares.
+     */
+    public static int wordsFor(int width)
+    {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * Returns the number of longs used for each row.
+     */
+    public int getWordsPerRow()
+    {
+        return wordsPerRow;
+    }
+
+    /**
+     * Returns the space at r,c.
+     */
+    public Space get(int r, int c)
+    {
+        int word = r * wordsPerRow + (c >>> 6);
+        long bit = 1L << c;
+        if ((water[word] & bit) != 0)
+            return Space.WATER;
+        if ((air[word] & bit) != 0)
+            return Space.AIR;
+        return Space.EMPTY;
+    }
+
+    /**
+     * Changes the space at r,c to space.
+     */
+    public void set(int r, int c, Space space)
+    {
+        int word = r * wordsPerRow + (c >>> 6);
+        long bit = 1L << c;
+        water[word] &= ~bit;
+        air[word] &= ~bit;
+        if (space == Space.WATER)
+            water[word] |= bit;
+        else if (space == Space.AIR)
+            air[word] |= bit;
+    }
+
+    /**
+     * Empties all of the spaces.
+     */
+    public void clear()
+    {
+        Arrays.fill(water, 0L);
+        Arrays.fill(air, 0L);
+    }
+
+    /**
+     * Returns the number of water spaces on Row r.
+     */
+    public int countWater(int r)
+    {
+        int count = 0;
+        for (int word = r * wordsPerRow; word < (r + 1) * wordsPerRow; ++word)
+            count += Long.bitCount(water[word]);
+        return count;
+    }
+
+    /**
+     * Returns the number of air spaces on Row r.
+     */
+    public int countAir(int r)
+    {
+        int count = 0;
+        for (int word = r * wordsPerRow; word < (r + 1) * wordsPerRow; ++word)
+            count += Long.bitCount(air[word]);
+        return count;
+    }
+
+    /**
+     * Returns the collective status of the squares on Row r selected by mask,
+     * where the row's words start at mask[offset]:
+     * 0 if the mask selects no squares;
+     * 1 if they're all water;
+     * 2 if they're all not-water; or
+     * 3 if they're a mixture of water and not-water.
+     */
+    public int rowStatus(int r, long[] mask, int offset)
+    {
+        boolean hasWater = false;
+        boolean hasNotWater = false;
+        for (int word = 0; word < wordsPerRow; ++word) {
+            long selected = mask[offset + word];
+            long wet = water[r * wordsPerRow + word] & selected;
+            hasWater |= wet != 0;
+            hasNotWater |= wet != selected;
+        }
+
+        if (hasWater && hasNotWater)
+            return 3;
+        if (hasNotWater)
+            return 2;
+        if (hasWater)
+            return 1;
+        return 0;
+    }
+}
@@ -35,13 +35,13 @@ public class CheckSolution
      */
     public static ArrayList<ArrayList<Integer>> aquariumRowPartition(Aquarium p, int row) {
         ArrayList<ArrayList<Integer>> partition = new ArrayList<ArrayList<Integer>>();
-        int[] aquariumRow = p.getAquariums()[row];
-        int previousAquarium = aquariumRow[0];
+        Puzzle puzzle = p.getPuzzle();
+        int previousAquarium = puzzle.getAquarium(row, 0);
         boolean previousWasWater = false;
         ArrayList<Integer> contiguousSegment = new ArrayList<Integer>();
         for (int column = 0; column < p.getSize(); ++column) {
             if (p.getSpaces()[row][column] != Space.WATER) {
-                int aquarium = aquariumRow[column];
+                int aquarium = puzzle.getAquarium(row, column);
                 if (aquarium != previousAquarium || previousWasWater) {
                     partition.add(contiguousSegment);
                     previousAquarium = aquarium;
@@ -59,16 +59,21 @@ public class CheckSolution
 
     /*
      * AUTOSOLVER COMPONENT
-     * returns all subsets from values which sum to sumTarget
+     * returns all subsets from values which sum to sumTarget. 
+     * There can be exponentially many of them, so the solvers use SubsetSums, 
+     * which only finds the values that are in every subset or in none.
      */
     public static ArrayList<ArrayList<Integer>> subsetSums(int sumTarget, ArrayList<Integer> values) {
+        if (values.size() > 62)
+            throw new IllegalArgumentException("too many values to list the subsets of: " + values.size());
+
         ArrayList<ArrayList<Integer>> subsetSums = new ArrayList<ArrayList<Integer>>();
 
-        int maxComparison = (int)Math.pow(2, values.size());
-        // maxComparison looks like: 000000011111
+        long maxComparison = 1L << values.size();
+        // maxComparison looks like: 000000100000
 
-        for (int i = 0; i < maxComparison; ++i) {
-            int currentSet = i;
+        for (long i = 0; i < maxComparison; ++i) {
+            long currentSet = i;
             int sum = 0;
             ArrayList<Integer> subset = new ArrayList<Integer>();
             for (int counter = 0; counter < values.size(); ++counter) {
@@ -85,56 +90,81 @@ public class CheckSolution
 
     /*
      * AUTOSOLVER COMPONENT
-     * (In theory) should return an aquarium in the solved state [not completed]
+     * Puts p into a solved state, searching at most maxSteps nodes. 
+     * If the budget runs out, only the squares which are certain are marked.
      */
     public static Aquarium solve(Aquarium p, int maxSteps) {
-        p.clear();
-
-        for (int row = 0; row < p.getSize(); ++row) {
-            ArrayList<ArrayList<Integer>> partition = aquariumRowPartition(p, row);
-            ArrayList<ArrayList<Integer>> subsetSums = subsetSums(p.getRowTotals()[row], condenseList(partition));
-            if (subsetSums.size() == 1) {
-                for (Integer index : subsetSums.get(0))
-                    for (Integer col : partition.get(index))
-                        p.leftClick(row, col);
-            }
-        }
+        AquariumSolver solver = new AquariumSolver(p);
+        solver.solve(maxSteps);
+        solver.writeTo(p);
 
-        for (int row = 0; row < p.getSize(); ++row) {
-            ArrayList<Integer> nextRowFills = new ArrayList<Integer>();
-            for (int col = 0; col < p.getSize(); ++col) {
-                if (p.getSpaces()[row][col] == Space.WATER) {
-                    if (!nextRowFills.contains(p.getAquariums()[row][col]))
-                        nextRowFills.add(p.getAquariums()[row][col]);
-                }
-            }
+        return p;
+    }
 
-            if (row < p.getSize() - 1)
-                for (int col = 0; col < p.getSize(); ++col) {
-                    if (nextRowFills.contains(p.getAquariums()[row + 1][col]) && p.getSpaces()[row + 1][col] != Space.WATER)
-                        p.leftClick(row + 1, col);
-                }
-        }
+    /*
+     * AUTOSOLVER COMPONENT
+     * Puts p into a solved state by searching over the water level of each aquarium, 
+     * visiting at most maxSteps nodes. If the budget runs out, p is left clear.
+     */
+    public static Aquarium solveByLevels(Aquarium p, int maxSteps) {
+        LevelSolver solver = new LevelSolver(p);
+        solver.solve(maxSteps);
+        solver.writeTo(p);
+
+        return p;
+    }
+
+    /*
+     * AUTOSOLVER COMPONENT
+     * Puts p into a solved state by splitting the water level search 
+     * across parallelism worker threads. If there is no solution, p is left clear.
+     */
+    public static Aquarium solveInParallel(Aquarium p, int parallelism) {
+        ParallelSolver solver = new ParallelSolver(p, parallelism);
+        solver.solve();
+        solver.writeTo(p);
 
         return p;
     }
 
+    /*
+     * AUTOSOLVER COMPONENT
+     * Returns the number of solutions to p, counting no further than cap. 
+     * Use a cap of 2 to check that a puzzle has exactly one solution.
+     */
+    public static int countSolutions(Aquarium p, int cap) {
+        return new AquariumSolver(p).countSolutions(cap, Integer.MAX_VALUE);
+    }
+
+    /*
+     * AUTOSOLVER COMPONENT
+     * Returns true iff p has exactly one solution.
+     */
+    public static boolean isUnique(Aquarium p) {
+        return countSolutions(p, 2) == 1;
+    }
+
+    /*
+     * AUTOSOLVER COMPONENT
+     * Returns up to cap solutions to p as grids of water and air. 
+     * With a cap of 2, two grids are a witness that p has more than one solution.
+     */
+    public static ArrayList<Space[][]> findSolutions(Aquarium p, int cap) {
+        AquariumSolver solver = new AquariumSolver(p);
+        int found = solver.countSolutions(cap, Integer.MAX_VALUE);
+
+        ArrayList<Space[][]> solutions = new ArrayList<Space[][]>();
+        for (int i = 0; i < found; ++i)
+            solutions.add(solver.getSolution(i));
+        return solutions;
+    }
+
     /**
      * Returns the number of water squares in each row of Aquarium puzzle p, top down.
      */
     public static int[] rowCounts(Aquarium p)
     {
-        int[] rowsCounts = new int[p.getSize()];
-        Space[][] spaces = p.getSpaces();
-
-        for (int row = 0; row < rowsCounts.length; ++row) {
-            for (Space space : spaces[row]) {
-                if (space == Space.WATER)
-                    rowsCounts[row]++;
-            }
-        }
-
-        return rowsCounts;
+        return p.getRowCounts().clone();
     }
 
     /**
@@ -142,17 +172,7 @@ public class CheckSolution
      */
     public static int[] columnCounts(Aquarium p)
     {
-        int[] columnCounts = new int[p.getSize()];
-        Space[][] spaces = p.getSpaces();
-
-        for (int row = 0; row < columnCounts.length; ++row) {
-            for (int col = 0; col < columnCounts.length; ++col) {
-                if (spaces[row][col] == Space.WATER)
-                    columnCounts[col]++;
-            }
-        }
-
-        return columnCounts;
+        return p.getColumnCounts().clone();
     }
 
     /**
@@ -167,33 +187,18 @@ public class CheckSolution
      */
     public static int[] rowStatus(Aquarium p, int t, int r)
     {
-        Space[] row = p.getSpaces()[r];
-
-        boolean exists = false;
-        boolean hasWater = false;
-        boolean hasAir = false;
         int[] collectiveStatus = { 0, -1 };
-        for (int columnIndex = 0; columnIndex < row.length; columnIndex++) {
-            if (p.getAquariums()[r][columnIndex] == t){
-                exists = true;
-                collectiveStatus[1] = columnIndex;
-                if (row[columnIndex] == Space.WATER) {
-                    hasWater = true;
-                } else {
-                    hasAir = true;
-                }
-            }
-        }
 
-        if (hasWater && hasAir) {
-            collectiveStatus[0] = 3;
-        } 
-        else if (!hasWater && hasAir) {
-            collectiveStatus[0] = 2;
-        }
-        else if (hasWater && !hasAir) {
-            collectiveStatus[0] = 1;
-        }
+        AquariumRegion region = p.getRegion(t);
+        if (region == null)
+            return collectiveStatus;
+        int rowIndex = region.getRowIndex(r);
+        if (rowIndex == -1)
+            return collectiveStatus;
+
+        // a mask test on the water bits decides the status; any square will do for the index
+        collectiveStatus[0] = p.getBitboard().rowStatus(r, region.getRowMasks(), region.getMaskOffset(rowIndex));
+        collectiveStatus[1] = region.getMaxColumn(rowIndex);
 
         return collectiveStatus;
     }
@@ -207,10 +212,17 @@ public class CheckSolution
      */
     public static String isAquariumOK(Aquarium p, int t)
     {
+        // an aquarium known to be valid needs no search for a bad square
+        AquariumRegion region = p.getRegion(t);
+        if (region == null || p.isAquariumValid(t))
+            return "";
+
         boolean allWater = false;
 
-        for (int row = 0; row < p.getSize(); row++)
+        // only the rows the aquarium spans can hold any of its squares
+        for (int rowIndex = 0; rowIndex < region.getRowCount(); rowIndex++)
         {
+            int row = region.getRow(rowIndex);
             int[] status = rowStatus(p, t, row);
 
             if (status[0] == 1){
@@ -233,22 +245,29 @@ public class CheckSolution
      * and all aquariums must be OK. 
      * Returns three ticks if the solution is correct; 
      * otherwise see the LMS page for the expected results. 
+     * 
+     * The row and column counts are maintained by p, and so is the validity of each aquarium, 
+     * which is only checked again after one of its squares changes. The report visits the squares 
+     * in the same order as the original column-major check, so the message is unchanged. 
      */
     public static String isSolution(Aquarium p)
     {
-        int size = p.getSize();
+        Puzzle puzzle = p.getPuzzle();
+        int size = puzzle.getSize();
+        int[] rowCounts = p.getRowCounts();
+        int[] columnCounts = p.getColumnCounts();
 
         for (int col = 0; col < size; ++col) {
             for (int row = 0; row < size; ++row) {
-                if (p.getRowTotals()[row] != rowCounts(p)[row]){
+                if (puzzle.getRowTotal(row) != rowCounts[row]){
                     return "Row " + row + " is wrong";
                 }
 
-                if (p.getColumnTotals()[col] != columnCounts(p)[col]) {
+                if (puzzle.getColumnTotal(col) != columnCounts[col]) {
                     return "Column " + col + " is wrong";
                 }
 
-                if (!isAquariumOK(p, p.getAquariums()[row][col]).isEmpty()){
+                if (!p.isAquariumValid(puzzle.getAquarium(row, col))){
                     return "The aquarium at " + row + "," + col + " is wrong";
                 }
             }
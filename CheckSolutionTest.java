@@ -3,6 +3,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import java.util.Arrays; 
+import java.util.Random;
 
 /**
  * This class provides unit test cases for the CheckSolution class.
@@ -230,4 +231,167 @@ public class CheckSolutionTest
         s = CheckSolution.isSolution(ax);
         assertTrue("solution correct", s.equals(threeticks));
     }
+
+    @Test
+    public void testsolve()
+    {
+        String threeticks = "\u2713\u2713\u2713";
+        for (java.io.File file : new java.io.File("Examples").listFiles())
+            if (file.getName().endsWith(".txt"))
+            {
+                Aquarium p = new Aquarium(file.getPath());
+                p.leftClick(0,0); // solve starts from a clear board
+                assertTrue  ("same puzzle", CheckSolution.solve(p, 3000) == p);
+                assertEquals(file.getName() + " not solved", threeticks, CheckSolution.isSolution(p));
+            }
+        // with no budget nothing is guessed, but forced squares are still marked
+        Aquarium p = new Aquarium("Examples/a15_1.txt");
+        CheckSolution.solve(p, 0);
+        assertFalse ("solved without searching", CheckSolution.isSolution(p).equals(threeticks));
+    }
+
+    @Test
+    public void testsolveByLevels()
+    {
+        String threeticks = "\u2713\u2713\u2713";
+        for (java.io.File file : new java.io.File("Examples").listFiles())
+            if (file.getName().endsWith(".txt"))
+            {
+                Aquarium p = new Aquarium(file.getPath());
+                assertTrue  ("same puzzle", CheckSolution.solveByLevels(p, 100000) == p);
+                assertEquals(file.getName() + " not solved", threeticks, CheckSolution.isSolution(p));
+            }
+    }
+
+    @Test
+    public void testsolveInParallel()
+    {
+        String threeticks = "\u2713\u2713\u2713";
+        for (int parallelism : new int[] {1, 4})
+            for (java.io.File file : new java.io.File("Examples").listFiles())
+                if (file.getName().endsWith(".txt"))
+                {
+                    Aquarium p = new Aquarium(file.getPath());
+                    assertTrue  ("same puzzle", CheckSolution.solveInParallel(p, parallelism) == p);
+                    assertEquals(file.getName() + " not solved", threeticks, CheckSolution.isSolution(p));
+                }
+        // a budget too small for a 15x15 board gives up, and the same solver can try again
+        ParallelSolver solver = new ParallelSolver(new Aquarium("Examples/a15_1.txt"), 4);
+        assertFalse ("solved without searching", solver.solve(1));
+        assertTrue  ("budget not spent",         solver.isBudgetSpent());
+        assertTrue  ("not solved",               solver.solve(1000000));
+        assertFalse ("budget spent",             solver.isBudgetSpent());
+    }
+
+    @Test
+    public void testSubsetSums()
+    {
+        // agrees with the full list of subsets
+        Random random = new Random(1001);
+        SubsetSums engine = new SubsetSums();
+        for (int trial = 0; trial < 500; trial++)
+        {
+            int n = 1 + random.nextInt(10);
+            int[] values = new int[n];
+            java.util.ArrayList<Integer> list = new java.util.ArrayList<Integer>();
+            for (int i = 0; i < n; i++)
+            {
+                values[i] = 1 + random.nextInt(4);
+                list.add(values[i]);
+            }
+            int target = random.nextInt(3 * n);
+            java.util.ArrayList<java.util.ArrayList<Integer>> subsets = CheckSolution.subsetSums(target, list);
+            assertEquals("wrong feasibility", !subsets.isEmpty(), engine.solve(target, values, n));
+            if (subsets.isEmpty())
+                continue;
+            for (int i = 0; i < n; i++)
+            {
+                int uses = 0;
+                for (java.util.ArrayList<Integer> subset : subsets)
+                    if (subset.contains(i)) uses++;
+                assertEquals("wrong forced in",  uses == subsets.size(), engine.isForcedIn(i));
+                assertEquals("wrong forced out", uses == 0,              engine.isForcedOut(i));
+            }
+        }
+        // rows far wider than a subset list could cope with
+        int[] values = new int[70];
+        Arrays.fill(values, 1);
+        values[69] = 100;
+        assertTrue  ("feasible",          engine.solve(69, values, 70));
+        assertTrue  ("wide value out",    engine.isForcedOut(69));
+        assertTrue  ("all the ones in",   engine.isForcedIn(0) && engine.isForcedIn(68));
+        assertFalse ("infeasible",        engine.solve(171, values, 70));
+    }
+
+    @Test
+    public void testcountSolutions()
+    {
+        // every 4x4 board, checked one by one
+        for (Aquarium p : new Aquarium[] {a4, ax})
+        {
+            int count = 0;
+            for (int board = 0; board < 1 << 16; board++)
+            {
+                p.clear();
+                for (int square = 0; square < 16; square++)
+                    if ((board >> square & 1) == 1) p.leftClick(square / 4, square % 4);
+                if (CheckSolution.isSolution(p).equals("\u2713\u2713\u2713"))
+                    count++;
+            }
+            assertEquals("wrong count", count, CheckSolution.countSolutions(p, 100));
+            assertEquals("wrong cap",   Math.min(count, 2), CheckSolution.countSolutions(p, 2));
+        }
+        assertTrue  ("unique",     CheckSolution.isUnique(a6));
+        assertFalse ("not unique", CheckSolution.isUnique(ax));
+
+        // two different solutions witness that ax is not unique
+        java.util.ArrayList<Space[][]> witness = CheckSolution.findSolutions(ax, 2);
+        assertEquals("wrong witness", 2, witness.size());
+        assertFalse ("same solutions", Arrays.deepEquals(witness.get(0), witness.get(1)));
+        for (Space[][] solution : witness)
+        {
+            ax.clear();
+            for (int r = 0; r < 4; r++)
+                for (int c = 0; c < 4; c++)
+                    if (solution[r][c] == Space.WATER) ax.leftClick(r,c);
+            assertEquals("not a solution", "\u2713\u2713\u2713", CheckSolution.isSolution(ax));
+        }
+    }
+
+    @Test
+    public void testisSolutionMatchesCellByCellCheck()
+    {
+        // the single-pass check must report exactly what the cell-by-cell check reports
+        Random random = new Random(2020);
+        for (String name : new String[] {"a4_1", "a6_1", "a6_4", "a10_1", "a15_1"})
+        {
+            Aquarium p = new Aquarium("Examples/" + name + ".txt");
+            for (int trial = 0; trial < 200; trial++)
+            {
+                p.clear();
+                for (int r = 0; r < p.getSize(); r++)
+                    for (int c = 0; c < p.getSize(); c++)
+                        if (random.nextInt(3) == 0) p.leftClick(r,c);
+                assertEquals("wrong message", cellByCellSolution(p), CheckSolution.isSolution(p));
+            }
+        }
+    }
+
+    /**
+     * The original column-major check, kept as the reference for isSolution.
+     */
+    private static String cellByCellSolution(Aquarium p)
+    {
+        for (int c = 0; c < p.getSize(); c++)
+            for (int r = 0; r < p.getSize(); r++)
+            {
+                if (p.getRowTotals()[r] != CheckSolution.rowCounts(p)[r])
+                    return "Row " + r + " is wrong";
+                if (p.getColumnTotals()[c] != CheckSolution.columnCounts(p)[c])
+                    return "Column " + c + " is wrong";
+                if (!CheckSolution.isAquariumOK(p, p.getAquariums()[r][c]).isEmpty())
+                    return "The aquarium at " + r + "," + c + " is wrong";
+            }
+        return "\u2713\u2713\u2713";
+    }
 }
@@ -1,44 +1,57 @@
 /**
- * Reads a file into an ArrayList of strings.
- * 
+ * Reads a file into memory in one go.
+ *
  * Simply create a FileIO object with a valid file name,
- * and it will read the contents of the file into the data structure lines.
- * 
+ * and it will read the contents of the file, which can be had as raw bytes or as lines.
+ * Files larger than MAP_THRESHOLD bytes are memory-mapped rather than copied.
+ *
  * e.g. reading the file f.txt containing "abc\nde\n\ngh\n" will return an object with
- * filename = "f.txt" 
+ * filename = "f.txt"
  * lines = <"abc", "de", "", "gh">
- * 
+ *
  * Lyndon While, 2020
  */
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
-class FileIO 
+class FileIO
 {
-   private String filename;         // the name of the file 
-   private ArrayList<String> lines; // the contents of the file
-   
+   // files at least this large are mapped into memory instead of being read into an array
+   private static final long MAP_THRESHOLD = 1 << 20;
+
+   private String filename;         // the name of the file
+   private ByteBuffer contents;     // the contents of the file
+   private ArrayList<String> lines; // the contents of the file split into lines, made when first asked for
+
    /**
     * Creates an object representing filename and its contents.
+    * Throws an IOException, with the underlying cause, if the file cannot be read.
     */
-   public FileIO (String filename) 
+   public FileIO (String filename) throws IOException
    {
-       this.filename = filename; 
-       try {
-            // open the file
-            FileInputStream fstream = new FileInputStream(filename);
-            // convert fstream to a DataInputStream
-            BufferedReader in = new BufferedReader(new InputStreamReader(fstream));
-            // read lines one at a time
-            lines = new ArrayList<>(); 
-            while (in.ready()) lines.add(in.readLine());
-            // close the data stream
-            in.close();
-           } 
-       catch (Exception e) {System.err.println("File input error reading " + filename);}
+       this.filename = filename;
+       try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+           long size = channel.size();
+           if (size >= MAP_THRESHOLD) {
+               contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+           }
+           else {
+               contents = ByteBuffer.allocate((int) size);
+               while (contents.hasRemaining() && channel.read(contents) >= 0);
+               contents.flip();
+           }
+       }
+       catch (IOException e) {
+           throw new IOException("File input error reading " + filename, e);
+       }
    }
-   
+
    /**
     * Returns the name of the file read.
     */
@@ -46,12 +59,45 @@ class FileIO
    {
        return filename;
    }
-   
+
+   /**
+    * Returns the contents of the file read, as a read-only buffer of its own.
+    */
+   public ByteBuffer getContents()
+   {
+       return contents.asReadOnlyBuffer();
+   }
+
    /**
-    * Returns the contents of the file read.
+    * Returns the contents of the file read, split into lines.
     */
    public ArrayList<String> getLines()
    {
+       if (lines == null) {
+           lines = new ArrayList<>();
+           ByteBuffer text = getContents();
+           int start = text.position();
+           for (int i = start; i < text.limit(); ++i) {
+               if (text.get(i) == '\n') {
+                   lines.add(line(text, start, i));
+                   start = i + 1;
+               }
+           }
+           if (start < text.limit())
+               lines.add(line(text, start, text.limit()));
+       }
        return lines;
    }
+
+   /**
+    * Returns the text between start and end, less any carriage return at the end.
+    */
+   private static String line(ByteBuffer text, int start, int end)
+   {
+       if (end > start && text.get(end - 1) == '\r')
+           end--;
+       byte[] bytes = new byte[end - start];
+       text.get(start, bytes);
+       return new String(bytes, StandardCharsets.ISO_8859_1);
+   }
 }
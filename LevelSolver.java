@@ -0,0 +1,356 @@
+/**
+ * LevelSolver finds a solution to an Aquarium puzzle by searching over water levels.
+ *
+ * Gravity means an aquarium is fully described by the row its water surface sits at,
+ * so the search state is one small int per aquarium rather than one per square.
+ * The solver keeps the water placed so far, and the squares still undecided,
+ * for every row and column, and prunes as soon as a total can no longer be met.
+ * At each node it branches on the aquarium with the fewest levels left.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LevelSolver
+{
+    // results of mostConstrained which are not aquariums
+    static final int COMPLETE = -1;
+    static final int DEAD_END = -2;
+
+    // the number of steps taken from a shared budget at a time
+    private static final int STEP_BATCH = 1024;
+
+    private int   size;         // the board is size x size
+    private int[] rowTotals;    // the totals at the left of the rows, top to bottom
+    private int[] columnTotals; // the totals at the top of the columns, left to right
+
+    // the aquariums, and for each of their squares its row, its column,
+    // and the position of its row among the rows the aquarium spans
+    private int     aquariumCount;
+    private int[]   rowCounts;      // the number of rows each aquarium spans
+    private int[][] cellRows;
+    private int[][] cellColumns;
+    private int[][] cellRowIndices;
+
+    // the level of each aquarium, or -1 if not yet chosen:
+    // the aquarium holds water on the rows it spans from that position down,
+    // so 0 is full and rowCounts[a] is empty
+    private int[] levels;
+
+    // the water placed so far, and the squares not yet decided, in each row and column
+    private int[] rowSums;
+    private int[] columnSums;
+    private int[] rowCaps;
+    private int[] columnCaps;
+
+    private int[] solution;     // the levels of the solution found, or null
+    private int   steps;        // the number of search nodes visited so far
+    private int   maxSteps;     // the search budget
+
+    // set by another search working on the same puzzle to make this one give up, or null
+    private AtomicBoolean cancelled;
+    // the budget shared by every search working on the same puzzle, or null
+    private AtomicInteger sharedSteps;
+
+    /**
+     * Creates a solver for the puzzle p. The spaces of p are ignored.
+     */
+    public LevelSolver(Aquarium p)
+    {
+        size = p.getSize();
+        rowTotals = p.getRowTotals();
+        columnTotals = p.getColumnTotals();
+
+        AquariumRegion[] regions = p.getRegions();
+        for (AquariumRegion region : regions)
+            if (region != null)
+                aquariumCount++;
+
+        rowCounts = new int[aquariumCount];
+        cellRows = new int[aquariumCount][];
+        cellColumns = new int[aquariumCount][];
+        cellRowIndices = new int[aquariumCount][];
+        int a = 0;
+        for (AquariumRegion region : regions) {
+            if (region == null)
+                continue;
+            rowCounts[a] = region.getRowCount();
+            cellRows[a] = new int[region.getCellCount()];
+            cellColumns[a] = new int[region.getCellCount()];
+            cellRowIndices[a] = new int[region.getCellCount()];
+            for (int k = 0; k < region.getCellCount(); ++k) {
+                cellRows[a][k] = region.getCellRow(k);
+                cellColumns[a][k] = region.getCellColumn(k);
+                cellRowIndices[a][k] = region.getRowIndex(region.getCellRow(k));
+            }
+            a++;
+        }
+
+        levels = new int[aquariumCount];
+        rowSums = new int[size];
+        columnSums = new int[size];
+        rowCaps = new int[size];
+        columnCaps = new int[size];
+    }
+
+    /**
+     * Creates a copy of other, sharing the puzzle but with its own search state.
+     */
+    LevelSolver(LevelSolver other)
+    {
+        size = other.size;
+        rowTotals = other.rowTotals;
+        columnTotals = other.columnTotals;
+        aquariumCount = other.aquariumCount;
+        rowCounts = other.rowCounts;
+        cellRows = other.cellRows;
+        cellColumns = other.cellColumns;
+        cellRowIndices = other.cellRowIndices;
+
+        levels = other.levels.clone();
+        rowSums = other.rowSums.clone();
+        columnSums = other.columnSums.clone();
+        rowCaps = other.rowCaps.clone();
+        columnCaps = other.columnCaps.clone();
+    }
+
+    /**
+     * Searches for a solution, visiting at most maxSteps search nodes.
+     * Returns true iff a solution was found.
+     */
+    public boolean solve(int maxSteps)
+    {
+        reset();
+        return searchFrom(maxSteps, null) != null;
+    }
+
+    /**
+     * Searches for a solution from the current state, visiting at most maxSteps search nodes
+     * and giving up early once cancelled, if given, is set. 
+     * Returns the levels of the solution found, or null.
+     */
+    int[] searchFrom(int maxSteps, AtomicBoolean cancelled)
+    {
+        this.maxSteps = maxSteps;
+        this.cancelled = cancelled;
+        steps = 0;
+        solution = null;
+        search();
+        return solution;
+    }
+
+    /**
+     * Searches for a solution from the current state, taking its steps from sharedSteps
+     * STEP_BATCH at a time and giving back the ones it does not use.
+     * Once sharedSteps runs out, cancelled is set so that every search sharing it gives up.
+     * Returns the levels of the solution found, or null.
+     */
+    int[] searchFrom(AtomicInteger sharedSteps, AtomicBoolean cancelled)
+    {
+        this.sharedSteps = sharedSteps;
+        int[] found = searchFrom(0, cancelled);
+        sharedSteps.addAndGet(maxSteps - steps);
+        this.sharedSteps = null;
+        return found;
+    }
+
+    /**
+     * Takes up to STEP_BATCH more steps from sharedSteps, if there is a shared budget.
+     * Returns false, and sets cancelled, if there are none left.
+     */
+    private boolean takeSteps()
+    {
+        if (sharedSteps == null)
+            return false;
+        int granted = Math.min(STEP_BATCH, sharedSteps.getAndUpdate(left -> left - Math.min(STEP_BATCH, left)));
+        if (granted <= 0) {
+            cancelled.set(true);
+            return false;
+        }
+        maxSteps += granted;
+        return true;
+    }
+
+    /**
+     * Removes the water of every aquarium, so that none has a level.
+     */
+    void reset()
+    {
+        Arrays.fill(levels, -1);
+        Arrays.fill(rowSums, 0);
+        Arrays.fill(columnSums, 0);
+        Arrays.fill(rowCaps, 0);
+        Arrays.fill(columnCaps, 0);
+        for (int a = 0; a < aquariumCount; ++a) {
+            for (int k = 0; k < cellRows[a].length; ++k) {
+                rowCaps[cellRows[a][k]]++;
+                columnCaps[cellColumns[a][k]]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of search nodes visited by the last call to solve.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Returns the level of each aquarium in the solution found, in aquarium number order,
+     * as a position among the rows it spans; or null if there is no solution.
+     */
+    public int[] getLevels()
+    {
+        return solution;
+    }
+
+    /**
+     * Writes the solution found by the last call to solve into the spaces of p,
+     * which must be the puzzle this solver was created for:
+     * water up to each aquarium's level, and air above it.
+     * If no solution was found, p is cleared.
+     */
+    public void writeTo(Aquarium p)
+    {
+        writeTo(p, solution);
+    }
+
+    /**
+     * Writes the levels of a solution into the spaces of p, or clears p if levels is null,
+     * as a single move which p can undo.
+     */
+    void writeTo(Aquarium p, int[] levels)
+    {
+        p.beginMove();
+        p.clear();
+        if (levels != null) {
+            for (int a = 0; a < aquariumCount; ++a) {
+                for (int k = 0; k < cellRows[a].length; ++k) {
+                    if (cellRowIndices[a][k] >= levels[a])
+                        p.leftClick(cellRows[a][k], cellColumns[a][k]);
+                    else
+                        p.rightClick(cellRows[a][k], cellColumns[a][k]);
+                }
+            }
+        }
+        p.endMove();
+    }
+
+    /**
+     * Chooses a level for the most constrained aquarium and recurses.
+     * Returns true iff the search should stop, because a solution
+     * was found or the budget is spent.
+     */
+    private boolean search()
+    {
+        if ((steps >= maxSteps && !takeSteps()) || (cancelled != null && cancelled.get()))
+            return true;
+        steps++;
+
+        int best = mostConstrained();
+        if (best == DEAD_END)
+            return false;
+        if (best == COMPLETE) {
+            // every aquarium has a level and no total is over or under
+            solution = levels.clone();
+            return true;
+        }
+
+        for (int level = rowCounts[best]; level >= 0; --level) {
+            if (place(best, level)) {
+                if (search())
+                    return true;
+                remove(best);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the aquarium without a level which has the fewest levels that fit;
+     * or COMPLETE if every aquarium has a level, or DEAD_END if some aquarium has no level that fits.
+     */
+    int mostConstrained()
+    {
+        int best = COMPLETE;
+        int bestOptions = Integer.MAX_VALUE;
+        for (int a = 0; a < aquariumCount && bestOptions > 1; ++a) {
+            if (levels[a] != -1)
+                continue;
+            int options = 0;
+            for (int level = 0; level <= rowCounts[a]; ++level) {
+                if (place(a, level)) {
+                    remove(a);
+                    options++;
+                }
+            }
+            if (options == 0)
+                return DEAD_END;
+            if (options < bestOptions) {
+                best = a;
+                bestOptions = options;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of rows aquarium a spans, which is also its empty level.
+     */
+    int getRowCount(int a)
+    {
+        return rowCounts[a];
+    }
+
+    /**
+     * Fills aquarium a to level, and checks the rows and columns it touches.
+     * Returns true and leaves the water in place if every total can still be met;
+     * otherwise returns false and leaves the state unchanged.
+     */
+    boolean place(int a, int level)
+    {
+        levels[a] = level;
+        for (int k = 0; k < cellRows[a].length; ++k) {
+            rowCaps[cellRows[a][k]]--;
+            columnCaps[cellColumns[a][k]]--;
+            if (cellRowIndices[a][k] >= level) {
+                rowSums[cellRows[a][k]]++;
+                columnSums[cellColumns[a][k]]++;
+            }
+        }
+
+        for (int k = 0; k < cellRows[a].length; ++k) {
+            int row = cellRows[a][k];
+            int column = cellColumns[a][k];
+            if (rowSums[row] > rowTotals[row] || rowSums[row] + rowCaps[row] < rowTotals[row]
+                || columnSums[column] > columnTotals[column]
+                || columnSums[column] + columnCaps[column] < columnTotals[column]) {
+                remove(a);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the water of aquarium a back out, leaving it without a level.
+     */
+    void remove(int a)
+    {
+        for (int k = 0; k < cellRows[a].length; ++k) {
+            rowCaps[cellRows[a][k]]++;
+            columnCaps[cellColumns[a][k]]++;
+            if (cellRowIndices[a][k] >= levels[a]) {
+                rowSums[cellRows[a][k]]--;
+                columnSums[cellColumns[a][k]]--;
+            }
+        }
+        levels[a] = -1;
+    }
+}
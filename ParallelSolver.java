@@ -0,0 +1,196 @@
+/**
+ * ParallelSolver finds a solution to an Aquarium puzzle by splitting the
+ * LevelSolver search tree across the cores of a ForkJoinPool.
+ *
+ * Near the root each task branches on the levels of the most constrained aquarium
+ * and forks a subtask for each level that fits; idle workers steal those subtasks.
+ * Once the pool has enough queued work, tasks carry on searching sequentially.
+ * The first task to find a solution cancels all the others, as does running out of steps:
+ * every task draws on one budget of search nodes.
+ *
+ * Solvers with the same parallelism share one pool, which lives as long as the program,
+ * so a batch of puzzles does not start and stop a set of threads for each one.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParallelSolver
+{
+    // tasks stop forking below this depth, or while the pool already has this much queued work
+    private static final int MAX_SPLIT_DEPTH = 16;
+    private static final int MAX_SURPLUS_TASKS = 3;
+
+    // the shared pools, by parallelism; their worker threads are daemons, so they never keep the program running
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+    private LevelSolver  root; // the search state before any level is chosen
+    private ForkJoinPool pool; // the pool the search runs in
+
+    private AtomicReference<int[]> solution;  // the levels of the first solution found
+    private AtomicBoolean          stopped;   // set once a solution is found or the budget is spent
+    private AtomicInteger          stepsLeft; // the search nodes left in the budget
+
+    /**
+     * Creates a solver for the puzzle p which searches in pool.
+     */
+    public ParallelSolver(Aquarium p, ForkJoinPool pool)
+    {
+        root = new LevelSolver(p);
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a solver for the puzzle p which uses parallelism worker threads,
+     * in the pool shared by every solver with that parallelism.
+     */
+    public ParallelSolver(Aquarium p, int parallelism)
+    {
+        this(p, sharedPool(parallelism));
+    }
+
+    /**
+     * Creates a solver for the puzzle p which uses every available core.
+     */
+    public ParallelSolver(Aquarium p)
+    {
+        this(p, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the pool shared by every solver with parallelism worker threads, creating it if need be.
+     */
+    private static ForkJoinPool sharedPool(int parallelism)
+    {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1, not " + parallelism);
+        return POOLS.computeIfAbsent(parallelism, n -> new ForkJoinPool(n));
+    }
+
+    /**
+     * Returns the number of worker threads used.
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Searches for a solution, with no limit on the search nodes visited. 
+     * Returns true iff one was found.
+     */
+    public boolean solve()
+    {
+        return solve(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for a solution, visiting at most maxSteps search nodes across all the threads.
+     * Returns true iff one was found.
+     */
+    public boolean solve(int maxSteps)
+    {
+        solution = new AtomicReference<int[]>();
+        stopped = new AtomicBoolean();
+        stepsLeft = new AtomicInteger(maxSteps);
+        root.reset();
+
+        pool.invoke(new SearchTask(new LevelSolver(root), 0));
+        return solution.get() != null;
+    }
+
+    /**
+     * Returns true iff the last call to solve gave up because it ran out of steps.
+     */
+    public boolean isBudgetSpent()
+    {
+        return stopped != null && stopped.get() && solution.get() == null;
+    }
+
+    /**
+     * Returns the level of each aquarium in the solution found, in aquarium number order,
+     * as a position among the rows it spans; or null if there is no solution.
+     */
+    public int[] getLevels()
+    {
+        return solution == null ? null : solution.get();
+    }
+
+    /**
+     * Writes the solution found by the last call to solve into the spaces of p,
+     * which must be the puzzle this solver was created for.
+     * If no solution was found, p is cleared.
+     */
+    public void writeTo(Aquarium p)
+    {
+        root.writeTo(p, getLevels());
+    }
+
+    /**
+     * Searches the subtree below one search state, which the task owns.
+     */
+    private class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private LevelSolver state;
+        private int         depth;
+
+        SearchTask(LevelSolver state, int depth)
+        {
+            this.state = state;
+            this.depth = depth;
+        }
+
+        protected void compute()
+        {
+            if (stopped.get())
+                return;
+
+            if (depth >= MAX_SPLIT_DEPTH || getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+                report(state.searchFrom(stepsLeft, stopped));
+                return;
+            }
+
+            // the nodes where the search splits count against the budget too
+            if (stepsLeft.getAndUpdate(left -> Math.max(0, left - 1)) <= 0) {
+                stopped.set(true);
+                return;
+            }
+
+            int best = state.mostConstrained();
+            if (best == LevelSolver.DEAD_END)
+                return;
+            if (best == LevelSolver.COMPLETE) {
+                report(state.searchFrom(stepsLeft, stopped));
+                return;
+            }
+
+            ArrayList<SearchTask> subtasks = new ArrayList<SearchTask>();
+            for (int level = state.getRowCount(best); level >= 0; --level) {
+                if (state.place(best, level)) {
+                    subtasks.add(new SearchTask(new LevelSolver(state), depth + 1));
+                    state.remove(best);
+                }
+            }
+            invokeAll(subtasks);
+        }
+
+        /**
+         * Records levels as the solution if it is the first one found.
+         */
+        private void report(int[] levels)
+        {
+            if (levels != null && solution.compareAndSet(null, levels))
+                stopped.set(true);
+        }
+    }
+}
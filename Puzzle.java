@@ -0,0 +1,201 @@
+/**
+ * Puzzle is the fixed definition of an Aquarium problem: its size, its row and column totals,
+ * and the aquarium each square belongs to, indexed by AquariumRegion.
+ *
+ * A Puzzle never changes once made, so it can be shared by any number of boards,
+ * solvers and threads at once. The getters which return arrays return copies;
+ * code which reads the puzzle often should use the accessors for single entries instead.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public final class Puzzle
+{
+    private final int     size;         // the board is size x size
+    private final int[]   columnTotals; // the totals at the top of the columns, left to right
+    private final int[]   rowTotals;    // the totals at the left of the rows, top to bottom
+
+    // the board divided into aquariums, numbered from 1,2,3,...
+    private final int[][] aquariums;
+    // the squares of each aquarium, indexed by aquarium number
+    private final AquariumRegion[] regions;
+
+    /**
+     * Creates a puzzle from copies of the totals and the grid of aquarium numbers,
+     * in the same layout as the files.
+     * Throws an IllegalArgumentException if they are not all the same size.
+     */
+    public Puzzle(int[] columnTotals, int[] rowTotals, int[][] aquariums)
+    {
+        size = columnTotals.length;
+        if (rowTotals.length != size || aquariums.length != size)
+            throw new IllegalArgumentException("a puzzle of size " + size + " needs " + size
+                                               + " row totals and rows, not " + rowTotals.length
+                                               + " and " + aquariums.length);
+        for (int[] row : aquariums) {
+            if (row.length != size)
+                throw new IllegalArgumentException("a row of a puzzle of size " + size + " has " + row.length + " squares");
+        }
+
+        this.columnTotals = columnTotals.clone();
+        this.rowTotals = rowTotals.clone();
+        this.aquariums = copy(aquariums);
+        regions = AquariumRegion.index(this.aquariums);
+    }
+
+    /**
+     * Reads the next puzzle from parser, which is left at the line after the puzzle.
+     */
+    public static Puzzle read(PuzzleParser parser)
+    {
+        int[] columnTotals = parser.nextLine();
+        int[] rowTotals = parser.nextLine(new int[columnTotals.length]);
+        parser.skipLine();
+
+        int[][] aquariums = new int[columnTotals.length][columnTotals.length];
+        for (int[] row : aquariums)
+            parser.nextLine(row);
+
+        return new Puzzle(columnTotals, rowTotals, aquariums);
+    }
+
+    /**
+     * Reads the puzzle in the file named filename.
+     * Throws an UncheckedIOException if the file cannot be read.
+     */
+    public static Puzzle load(String filename)
+    {
+        try {
+            return read(new PuzzleParser(new FileIO(filename).getContents()));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a copy of grid, row by row.
+     */
+    private static int[][] copy(int[][] grid)
+    {
+        int[][] copy = new int[grid.length][];
+        for (int row = 0; row < grid.length; ++row)
+            copy[row] = grid[row].clone();
+        return copy;
+    }
+
+    /**
+     * Returns the size of the puzzle.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the total for Column c.
+     */
+    public int getColumnTotal(int c)
+    {
+        return columnTotals[c];
+    }
+
+    /**
+     * Returns the total for Row r.
+     */
+    public int getRowTotal(int r)
+    {
+        return rowTotals[r];
+    }
+
+    /**
+     * Returns the number of the aquarium containing Square r,c.
+     */
+    public int getAquarium(int r, int c)
+    {
+        return aquariums[r][c];
+    }
+
+    /**
+     * Returns a copy of the column totals.
+     */
+    public int[] getColumnTotals()
+    {
+        return columnTotals.clone();
+    }
+
+    /**
+     * Returns a copy of the row totals.
+     */
+    public int[] getRowTotals()
+    {
+        return rowTotals.clone();
+    }
+
+    /**
+     * Returns a copy of the board in aquariums.
+     */
+    public int[][] getAquariums()
+    {
+        return copy(aquariums);
+    }
+
+    /**
+     * Returns one more than the largest aquarium number, the length of getRegions().
+     */
+    public int getRegionCount()
+    {
+        return regions.length;
+    }
+
+    /**
+     * Returns the aquarium numbered t, or null if there is no such aquarium.
+     */
+    public AquariumRegion getRegion(int t)
+    {
+        if (t < 0 || t >= regions.length)
+            return null;
+        return regions[t];
+    }
+
+    /**
+     * Returns a copy of the index of every aquarium, where entry t describes the aquarium numbered t.
+     * Entries for numbers not used on the board are null.
+     */
+    public AquariumRegion[] getRegions()
+    {
+        return regions.clone();
+    }
+
+    /**
+     * Returns the puzzle in the format of the files in Examples:
+     * the column totals, the row totals, a blank line, then the aquariums row by row.
+     */
+    public String toText()
+    {
+        StringBuilder text = new StringBuilder();
+        appendLine(text, columnTotals);
+        appendLine(text, rowTotals);
+        text.append('\n');
+        for (int[] row : aquariums)
+            appendLine(text, row);
+        return text.toString();
+    }
+
+    /**
+     * Appends the ints in numbers to text, separated by single spaces, and ends the line.
+     */
+    private static void appendLine(StringBuilder text, int[] numbers)
+    {
+        for (int numberIndex = 0; numberIndex < numbers.length; ++numberIndex) {
+            if (numberIndex > 0)
+                text.append(' ');
+            text.append(numbers[numberIndex]);
+        }
+        text.append('\n');
+    }
+}
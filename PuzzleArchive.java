@@ -0,0 +1,279 @@
+/**
+ * PuzzleArchive is a binary file of many puzzles, any one of which can be loaded by number
+ * in a few microseconds.
+ *
+ * The file starts with the bytes "AQB1", followed by one record per puzzle:
+ * its size, its column totals, its row totals, and its aquarium numbers in reading order,
+ * each as an unsigned varint (seven bits to a byte, low bits first, the top bit set on
+ * every byte but the last). So boards of up to 127 aquariums take one byte a square.
+ * After the records comes the index, the offset of each record as an 8-byte long,
+ * then the number of puzzles as an int and the offset of the index as a long.
+ *
+ * The whole file is memory-mapped when opened, so it must be smaller than 2 GiB.
+ *
+ * Run from the command line as
+ *     java PuzzleArchive pack archive.aqb path...
+ * to pack the puzzle files or corpora named by each path (a file or a directory of .txt files), or
+ *     java PuzzleArchive unpack archive.aqb output
+ * to unpack an archive into a corpus, if output ends in .corpus, or else into a directory of .txt files.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.StreamSupport;
+
+public class PuzzleArchive implements Iterable<Aquarium>
+{
+    private static final byte[] MAGIC = {'A', 'Q', 'B', '1'};
+    // the count and the index offset at the end of the file
+    private static final int TRAILER_BYTES = 4 + 8;
+
+    private String     filename; // the name of the archive file
+    private ByteBuffer data;     // the whole file, mapped into memory
+    private int        count;    // the number of puzzles
+    private int        index;    // the offset in data of the index
+
+    /**
+     * Opens the archive file named filename.
+     * Throws an IOException if it cannot be read or is not an archive.
+     */
+    public PuzzleArchive(String filename) throws IOException
+    {
+        this.filename = filename;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(filename + " is too large to map: " + size + " bytes");
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int size = data.limit();
+        if (size < MAGIC.length + TRAILER_BYTES || data.get(0) != MAGIC[0] || data.get(1) != MAGIC[1]
+            || data.get(2) != MAGIC[2] || data.get(3) != MAGIC[3])
+            throw new IOException(filename + " is not a puzzle archive");
+        count = data.getInt(size - TRAILER_BYTES);
+        long indexOffset = data.getLong(size - 8);
+        if (count < 0 || indexOffset < MAGIC.length || indexOffset + 8L * count != size - TRAILER_BYTES)
+            throw new IOException(filename + " has a damaged index");
+        index = (int) indexOffset;
+    }
+
+    /**
+     * Returns the name of the archive file.
+     */
+    public String getName()
+    {
+        return filename;
+    }
+
+    /**
+     * Returns the number of puzzles in the archive.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Returns puzzle n, counting from 0.
+     * Throws an IllegalStateException if its record is damaged.
+     */
+    public Aquarium get(int n)
+    {
+        if (n < 0 || n >= count)
+            throw new IndexOutOfBoundsException("puzzle " + n + " of " + count);
+
+        // each call reads through a buffer of its own, so puzzles can be loaded from several threads
+        ByteBuffer record = data.duplicate();
+        long offset = data.getLong(index + 8 * n);
+        if (offset < MAGIC.length || offset >= index)
+            throw new IllegalStateException(filename + ": puzzle " + n + " has a damaged offset " + offset);
+        // the records end at the index, and every number takes at least a byte
+        record.position((int) offset);
+        record.limit(index);
+        int size = readVarint(record);
+        if (size <= 0 || (long) size * (size + 2) > record.remaining())
+            throw new IllegalStateException(filename + ": puzzle " + n + " has a damaged size " + size);
+        int[] columnTotals = new int[size];
+        int[] rowTotals = new int[size];
+        int[][] aquariums = new int[size][size];
+        for (int i = 0; i < size; ++i)
+            columnTotals[i] = readVarint(record);
+        for (int i = 0; i < size; ++i)
+            rowTotals[i] = readVarint(record);
+        for (int[] row : aquariums)
+            for (int i = 0; i < size; ++i)
+                row[i] = readVarint(record);
+        return new Aquarium(columnTotals, rowTotals, aquariums);
+    }
+
+    /**
+     * Returns an iterator over the puzzles in the archive, in order, each loaded as it is pulled.
+     */
+    public Iterator<Aquarium> iterator()
+    {
+        return new Iterator<Aquarium>() {
+            private int next;
+
+            public boolean hasNext()
+            {
+                return next < count;
+            }
+
+            public Aquarium next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Reads the varint at the position of record, and moves past it.
+     * Throws an IllegalStateException if it runs past the end of record or is too long for an int.
+     */
+    private static int readVarint(ByteBuffer record)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!record.hasRemaining())
+                throw new IllegalStateException("a damaged record runs into the index");
+            byte b = record.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalStateException("a damaged record has a number too long for an int");
+    }
+
+    /**
+     * Writes puzzles to a new archive file named filename.
+     * The numbers in the puzzles must not be negative.
+     */
+    public static void write(Iterable<Aquarium> puzzles, Path filename) throws IOException
+    {
+        long[] offsets = new long[64];
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(filename)))) {
+            out.write(MAGIC);
+            for (Aquarium puzzle : puzzles) {
+                // DataOutputStream.size stops counting at 2 GiB, as does the mapping of the file
+                if (out.size() == Integer.MAX_VALUE)
+                    throw new IOException(filename + " would be too large to map");
+                if (written == offsets.length)
+                    offsets = Arrays.copyOf(offsets, 2 * written);
+                offsets[written++] = out.size();
+
+                writeVarint(out, puzzle.getSize());
+                for (int total : puzzle.getColumnTotals())
+                    writeVarint(out, total);
+                for (int total : puzzle.getRowTotals())
+                    writeVarint(out, total);
+                for (int[] row : puzzle.getAquariums())
+                    for (int number : row)
+                        writeVarint(out, number);
+            }
+
+            long indexOffset = out.size();
+            if (indexOffset == Integer.MAX_VALUE || indexOffset + 8L * written + TRAILER_BYTES > Integer.MAX_VALUE)
+                throw new IOException(filename + " would be too large to map");
+            for (int n = 0; n < written; ++n)
+                out.writeLong(offsets[n]);
+            out.writeInt(written);
+            out.writeLong(indexOffset);
+        }
+    }
+
+    /**
+     * Writes value to out as a varint.
+     */
+    private static void writeVarint(DataOutputStream out, int value) throws IOException
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("cannot store the negative number " + value);
+        while (value >= 0x80) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Packs puzzle files into an archive, or unpacks one.
+     * Usage: java PuzzleArchive pack archive.aqb path...
+     *        java PuzzleArchive unpack archive.aqb output
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 3 && args[0].equals("pack")) {
+            ArrayList<Iterable<Aquarium>> sources = new ArrayList<Iterable<Aquarium>>();
+            for (int i = 2; i < args.length; ++i)
+                addSources(sources, Paths.get(args[i]));
+            final int[] packed = {0};
+            write(() -> sources.stream()
+                               .flatMap(source -> StreamSupport.stream(source.spliterator(), false))
+                               .peek(puzzle -> packed[0]++)
+                               .iterator(),
+                  Paths.get(args[1]));
+            System.out.println(packed[0] + " puzzles packed into " + args[1]);
+        }
+        else if (args.length == 3 && args[0].equals("unpack")) {
+            PuzzleArchive archive = new PuzzleArchive(args[1]);
+            if (args[2].endsWith(".corpus")) {
+                PuzzleCorpus.write(archive, Paths.get(args[2]));
+            }
+            else {
+                Path directory = Paths.get(args[2]);
+                Files.createDirectories(directory);
+                for (int n = 0; n < archive.size(); ++n)
+                    PuzzleGenerator.write(archive.get(n), directory.resolve((n + 1) + ".txt"));
+            }
+            System.out.println(archive.size() + " puzzles unpacked into " + args[2]);
+        }
+        else {
+            System.err.println("Usage: java PuzzleArchive pack archive.aqb path...");
+            System.err.println("       java PuzzleArchive unpack archive.aqb output");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Adds the puzzles named by path to sources: a .txt file, a corpus, or a directory of .txt files.
+     */
+    private static void addSources(ArrayList<Iterable<Aquarium>> sources, Path path) throws IOException
+    {
+        if (Files.isDirectory(path)) {
+            ArrayList<Path> matches = new ArrayList<Path>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.txt")) {
+                for (Path file : stream)
+                    matches.add(file);
+            }
+            Collections.sort(matches);
+            for (Path file : matches)
+                addSources(sources, file);
+        }
+        else if (path.toString().endsWith(".corpus")) {
+            sources.add(new PuzzleCorpus(path.toString()));
+        }
+        else {
+            sources.add(() -> Collections.singletonList(new Aquarium(path.toString())).iterator());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * This class provides unit test cases for the PuzzleArchive class.
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+public class PuzzleArchiveTest
+{
+    private Path file;
+    private ArrayList<Aquarium> ps;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = Files.createTempFile("aquarium", ".aqb");
+        ps = new ArrayList<Aquarium>();
+        for (String name : new String[] {"a4_1", "a6_1", "a10_1", "a15_1"})
+            ps.add(new Aquarium("Examples/" + name + ".txt"));
+        // enough aquariums that their numbers take two bytes
+        int[][] aquariums = new int[12][12];
+        for (int r = 0; r < 12; r++)
+            for (int c = 0; c < 12; c++)
+                aquariums[r][c] = 12 * r + c + 1;
+        ps.add(new Aquarium(new int[12], new int[12], aquariums));
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        Files.delete(file);
+    }
+
+    @Test
+    public void testget() throws Exception
+    {
+        PuzzleArchive.write(ps, file);
+        PuzzleArchive archive = new PuzzleArchive(file.toString());
+        assertEquals("wrong count", ps.size(), archive.size());
+        // in any order
+        for (int n = ps.size() - 1; n >= 0; n--)
+            assertEquals("wrong puzzle", ps.get(n).toText(), archive.get(n).toText());
+
+        int n = 0;
+        for (Aquarium q : archive)
+            assertEquals("wrong puzzle", ps.get(n++).toText(), q.toText());
+        assertEquals("wrong count", ps.size(), n);
+    }
+
+    @Test
+    public void testempty() throws Exception
+    {
+        PuzzleArchive.write(new ArrayList<Aquarium>(), file);
+        assertEquals("wrong count", 0, new PuzzleArchive(file.toString()).size());
+    }
+
+    @Test
+    public void testdamaged() throws Exception
+    {
+        PuzzleArchive.write(ps, file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        int index = (int) data.getLong(bytes.length - 8);
+        // puzzle 0 claims a size bigger than the file, and puzzle 1 points into the magic
+        bytes[4] = 0x7f;
+        data.putLong(index + 8, 1);
+        Files.write(file, bytes);
+
+        PuzzleArchive archive = new PuzzleArchive(file.toString());
+        for (int n = 0; n < 2; n++)
+        {
+            try
+            {
+                archive.get(n);
+                fail("no exception");
+            }
+            catch (IllegalStateException e)
+            {
+                assertTrue("wrong message", e.getMessage().contains("puzzle " + n + " has a damaged"));
+            }
+        }
+        assertEquals("wrong puzzle", ps.get(2).toText(), archive.get(2).toText());
+    }
+
+    @Test(expected = IOException.class)
+    public void testnotArchive() throws Exception
+    {
+        new PuzzleArchive("Examples/a4_1.txt");
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * PuzzleCorpus is a file holding many puzzles, one after another, each in the format
+ * of the files in Examples and followed by a blank line.
+ *
+ * The puzzles are read lazily: iterating over a corpus, or streaming it, parses each puzzle
+ * only when it is pulled, and keeps no reference to the puzzles already returned.
+ * Large corpora are memory-mapped, so memory stays flat however many puzzles there are.
+ *
+ * Run from the command line as
+ *     java PuzzleCorpus output.corpus path...
+ * to gather the puzzle files named by each path (a file or a directory of .txt files) into one corpus.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class PuzzleCorpus implements Iterable<Aquarium>
+{
+    private String filename; // the name of the corpus file
+
+    /**
+     * Creates a corpus reading the file named filename. Nothing is read until it is iterated over.
+     */
+    public PuzzleCorpus(String filename)
+    {
+        this.filename = filename;
+    }
+
+    /**
+     * Returns the name of the corpus file.
+     */
+    public String getName()
+    {
+        return filename;
+    }
+
+    /**
+     * Returns an iterator over the puzzles in the corpus, in file order.
+     * Throws an UncheckedIOException if the file cannot be read,
+     * and a NumberFormatException from next if a puzzle is malformed.
+     */
+    public Iterator<Aquarium> iterator()
+    {
+        final PuzzleParser parser;
+        try {
+            parser = new PuzzleParser(new FileIO(filename).getContents());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new Iterator<Aquarium>() {
+            public boolean hasNext()
+            {
+                parser.skipBlankLines();
+                return !parser.atEnd();
+            }
+
+            public Aquarium next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return new Aquarium(parser);
+            }
+        };
+    }
+
+    /**
+     * Returns a sequential stream of the puzzles in the corpus, in file order.
+     */
+    public Stream<Aquarium> stream()
+    {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Writes puzzles to a new corpus file named filename.
+     */
+    public static void write(Iterable<Aquarium> puzzles, Path filename) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(filename, StandardCharsets.US_ASCII)) {
+            for (Aquarium puzzle : puzzles) {
+                out.write(puzzle.toText());
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Gathers puzzle files into a corpus.
+     * Usage: java PuzzleCorpus output.corpus path...
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: java PuzzleCorpus output.corpus path...");
+            System.exit(1);
+        }
+
+        ArrayList<String> files = new ArrayList<String>();
+        for (int i = 1; i < args.length; ++i) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                ArrayList<String> matches = new ArrayList<String>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.txt")) {
+                    for (Path file : stream)
+                        matches.add(file.toString());
+                }
+                Collections.sort(matches);
+                files.addAll(matches);
+            }
+            else {
+                files.add(args[i]);
+            }
+        }
+
+        // each puzzle is loaded only as it is written
+        write(() -> files.stream().map(Aquarium::new).iterator(), Paths.get(args[0]));
+        System.out.println(files.size() + " puzzles written to " + args[0]);
+    }
+}
@@ -0,0 +1,87 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * This class provides unit test cases for the PuzzleCorpus class.
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+public class PuzzleCorpusTest
+{
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = Files.createTempFile("aquarium", ".corpus");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        Files.delete(file);
+    }
+
+    @Test
+    public void testwrite() throws Exception
+    {
+        ArrayList<Aquarium> ps = new ArrayList<Aquarium>();
+        for (String name : new String[] {"a4_1", "a6_1", "a10_1", "a15_1"})
+            ps.add(new Aquarium("Examples/" + name + ".txt"));
+        PuzzleCorpus.write(ps, file);
+
+        PuzzleCorpus corpus = new PuzzleCorpus(file.toString());
+        int n = 0;
+        for (Aquarium q : corpus)
+        {
+            assertEquals("wrong puzzle", ps.get(n).toText(), q.toText());
+            n++;
+        }
+        assertEquals("wrong count", ps.size(), n);
+        assertEquals("wrong count", ps.size(), corpus.stream().count());
+    }
+
+    @Test
+    public void testiterator() throws Exception
+    {
+        // extra blank lines, trailing spaces and a missing final newline are all allowed
+        String text = "1 1\n1 1\n\n1 2\n1 2\n\n\n  \n2 0\n1 1 \r\n\n1 1\n1 1";
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+
+        Iterator<Aquarium> it = new PuzzleCorpus(file.toString()).iterator();
+        assertTrue  ("no puzzle",      it.hasNext());
+        assertEquals("wrong size",  2, it.next().getSize());
+        assertTrue  ("no puzzle",      it.hasNext());
+        Aquarium q = it.next();
+        assertEquals("wrong entry", 2, q.getColumnTotals()[0]);
+        assertEquals("wrong entry", 1, q.getAquariums()[1][1]);
+        assertFalse ("extra puzzle",   it.hasNext());
+    }
+
+    @Test
+    public void testlazy() throws Exception
+    {
+        // the second puzzle is malformed, but the first can still be read
+        String text = "1\n1\n\n1\n\n1 x\n";
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+
+        Iterator<Aquarium> it = new PuzzleCorpus(file.toString()).iterator();
+        assertEquals("wrong size", 1, it.next().getSize());
+        try
+        {
+            it.next();
+            fail("no exception");
+        }
+        catch (NumberFormatException e)
+        {
+            assertTrue("wrong position", e.getMessage().startsWith("line 6, column 3:"));
+        }
+    }
+}
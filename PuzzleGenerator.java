@@ -0,0 +1,214 @@
+/**
+ * PuzzleGenerator creates new Aquarium puzzles with exactly one solution.
+ *
+ * The grid is split at random into connected aquariums, each aquarium is filled
+ * to a random level, and the row and column totals are read off the result.
+ * The candidate is kept only if AquariumSolver finds no other solution.
+ *
+ * Up to size 50 or so nearly every candidate is unique, and a puzzle takes a few tries at most.
+ * Around size 60 most candidates use up the uniqueness budget, and a puzzle takes a dozen tries
+ * or more; much larger boards are not expected to work. generate gives up, with an
+ * IllegalStateException, after a fixed number of candidates.
+ *
+ * Run from the command line as
+ *     java PuzzleGenerator size count outputDirectory [threads] [seed]
+ * to write count puzzles named g{size}_{n}.txt, in the format of the files in Examples,
+ * using every core unless threads is given.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PuzzleGenerator
+{
+    // the most search nodes spent proving a candidate unique before giving up on it
+    private static final int MAX_UNIQUENESS_STEPS = 20000;
+    // the most candidates generate tries before giving up
+    private static final int MAX_ATTEMPTS = 100;
+
+    private int    size;     // the puzzles are size x size
+    private Random random;   // the source of every choice made
+    private int    attempts; // the number of candidates tried so far
+
+    /**
+     * Creates a generator of size x size puzzles, whose choices all follow from seed.
+     */
+    public PuzzleGenerator(int size, long seed)
+    {
+        if (size < 1)
+            throw new IllegalArgumentException("size must be at least 1, not " + size);
+        this.size = size;
+        random = new Random(seed);
+    }
+
+    /**
+     * Returns the number of candidates tried so far, including the ones kept.
+     */
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    /**
+     * Returns a new puzzle with exactly one solution, trying at most MAX_ATTEMPTS candidates.
+     * Throws an IllegalStateException if none of them has exactly one solution.
+     */
+    public Aquarium generate()
+    {
+        return generate(MAX_ATTEMPTS);
+    }
+
+    /**
+     * Returns a new puzzle with exactly one solution, trying at most maxAttempts candidates.
+     * Throws an IllegalStateException if none of them has exactly one solution.
+     */
+    public Aquarium generate(int maxAttempts)
+    {
+        for (int attempt = 0; attempt < maxAttempts; ++attempt) {
+            Aquarium candidate = generateSolvable();
+            AquariumSolver solver = new AquariumSolver(candidate);
+            if (solver.countSolutions(2, MAX_UNIQUENESS_STEPS) == 1 && !solver.isBudgetSpent())
+                return candidate;
+        }
+        throw new IllegalStateException("no puzzle of size " + size + " with exactly one solution in "
+                                        + maxAttempts + " candidates");
+    }
+
+    /**
+     * Returns a new puzzle with at least one solution, which may not be unique.
+     */
+    public Aquarium generateSolvable()
+    {
+        attempts++;
+        return fill(partition());
+    }
+
+    /**
+     * Splits the grid into connected aquariums, numbered 1,2,3,... in reading order.
+     * Each aquarium grows from its first square into random neighbouring squares
+     * until it reaches a random size of up to about one and a half rows.
+     */
+    private int[][] partition()
+    {
+        int[][] aquariums = new int[size][size];
+        int[] frontier = new int[size * size * 4];
+        int number = 0;
+
+        for (int start = 0; start < size * size; ++start) {
+            if (aquariums[start / size][start % size] != 0)
+                continue;
+
+            number++;
+            int target = 1 + random.nextInt(size + size / 2);
+            int grown = 0;
+            int frontierSize = 0;
+            frontier[frontierSize++] = start;
+            while (grown < target && frontierSize > 0) {
+                int pick = random.nextInt(frontierSize);
+                int square = frontier[pick];
+                frontier[pick] = frontier[--frontierSize];
+
+                int row = square / size;
+                int column = square % size;
+                if (aquariums[row][column] != 0)
+                    continue;
+                aquariums[row][column] = number;
+                grown++;
+
+                if (row > 0)            frontier[frontierSize++] = square - size;
+                if (row < size - 1)     frontier[frontierSize++] = square + size;
+                if (column > 0)         frontier[frontierSize++] = square - 1;
+                if (column < size - 1)  frontier[frontierSize++] = square + 1;
+            }
+        }
+        return aquariums;
+    }
+
+    /**
+     * Fills each aquarium to a random level and returns an empty puzzle
+     * whose totals count that water.
+     */
+    private Aquarium fill(int[][] aquariums)
+    {
+        Aquarium board = new Aquarium(new int[size], new int[size], aquariums);
+        for (AquariumRegion region : board.getRegions()) {
+            if (region == null)
+                continue;
+            int level = random.nextInt(region.getRowCount() + 1);
+            for (int k = region.getRowStart(level); k < region.getCellCount(); ++k)
+                board.leftClick(region.getCellRow(k), region.getCellColumn(k));
+        }
+
+        return new Aquarium(board.getColumnCounts().clone(), board.getRowCounts().clone(), aquariums);
+    }
+
+    /**
+     * Writes puzzle to the file named filename, in the format of the files in Examples.
+     */
+    public static void write(Aquarium puzzle, Path filename) throws IOException
+    {
+        Files.write(filename, puzzle.toText().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Generates puzzles across several threads and reports the rate achieved.
+     * Usage: java PuzzleGenerator size count outputDirectory [threads] [seed]
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 3) {
+            System.err.println("Usage: java PuzzleGenerator size count outputDirectory [threads] [seed]");
+            System.exit(1);
+        }
+        final int size = Integer.parseInt(args[0]);
+        final int count = Integer.parseInt(args[1]);
+        final Path directory = Paths.get(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        Files.createDirectories(directory);
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<?>> workers = new ArrayList<Future<?>>();
+        for (int thread = 0; thread < threads; ++thread) {
+            final PuzzleGenerator generator = new PuzzleGenerator(size, seed + thread);
+            workers.add(pool.submit(() -> {
+                for (int n = next.getAndIncrement(); n < count; n = next.getAndIncrement()) {
+                    Aquarium puzzle = generator.generate();
+                    write(puzzle, directory.resolve("g" + size + "_" + (n + 1) + ".txt"));
+                }
+                attempts.addAndGet(generator.getAttempts());
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers)
+                worker.get();
+        }
+        catch (ExecutionException e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(1);
+        }
+        pool.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d puzzles of size %d in %.2f s: %.1f puzzles/s on %d threads, %d candidates tried%n",
+                          count, size, seconds, count / seconds, threads, attempts.get());
+    }
+}
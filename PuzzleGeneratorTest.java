@@ -0,0 +1,91 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class provides unit test cases for the PuzzleGenerator class.
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+public class PuzzleGeneratorTest
+{
+    @Test
+    public void testgenerate()
+    {
+        for (int size : new int[] {1, 4, 8, 12})
+        {
+            PuzzleGenerator generator = new PuzzleGenerator(size, size);
+            for (int n = 0; n < 5; n++)
+            {
+                Aquarium p = generator.generate();
+                assertEquals("wrong size", size, p.getSize());
+                assertTrue  ("not unique", CheckSolution.isUnique(p));
+                // every aquarium is connected
+                for (AquariumRegion region : p.getRegions())
+                    if (region != null)
+                        assertEquals("not connected", region.getCellCount(), reach(p, region));
+            }
+            assertTrue("wrong attempts", generator.getAttempts() >= 5);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testgenerateGivesUp()
+    {
+        // the first candidate from this seed has more than one solution
+        new PuzzleGenerator(6, 12).generate(1);
+    }
+
+    @Test
+    public void testwrite() throws Exception
+    {
+        Aquarium p = new PuzzleGenerator(7, 2020).generate();
+        Path file = Files.createTempFile("aquarium", ".txt");
+        try
+        {
+            PuzzleGenerator.write(p, file);
+            Aquarium q = new Aquarium(file.toString());
+            assertEquals("wrong puzzle", p.toText(), q.toText());
+            assertTrue  ("not unique", CheckSolution.isUnique(q));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Returns the number of squares of region reachable from its first square without leaving it.
+     */
+    private static int reach(Aquarium p, AquariumRegion region)
+    {
+        int size = p.getSize();
+        boolean[][] seen = new boolean[size][size];
+        int[] stack = new int[size * size];
+        int top = 0;
+        int count = 0;
+        stack[top++] = region.getCellRow(0) * size + region.getCellColumn(0);
+        seen[region.getCellRow(0)][region.getCellColumn(0)] = true;
+        while (top > 0)
+        {
+            int square = stack[--top];
+            count++;
+            int[][] steps = {{-1,0},{1,0},{0,-1},{0,1}};
+            for (int[] step : steps)
+            {
+                int r = square / size + step[0];
+                int c = square % size + step[1];
+                if (r >= 0 && r < size && c >= 0 && c < size && !seen[r][c]
+                    && p.getAquariums()[r][c] == region.getNumber())
+                {
+                    seen[r][c] = true;
+                    stack[top++] = r * size + c;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * PuzzleParser reads the lines of numbers in a puzzle file straight from a buffer of bytes,
+ * without building a String or a String[] for each line. The buffer may be an array
+ * or a file mapped into memory.
+ *
+ * Numbers are separated by any run of spaces, tabs or carriage returns, and may be negative.
+ * Each call reads one line and moves on to the start of the next.
+ * Malformed input throws a NumberFormatException giving the line and column
+ * at which it went wrong.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class PuzzleParser
+{
+    private ByteBuffer data;  // the text being read
+    private int    position;  // the index in data of the next byte to read
+    private int    end;       // the index in data just past the text
+    private int    line;      // the line containing position, counting from 1
+    private int    lineStart; // the index in data of the start of that line
+
+    private int[]  scratch;   // holds the numbers of a line whose length is not known in advance
+
+    /**
+     * Creates a parser for the bytes of data from its position up to its limit.
+     * The parser reads data without moving its position.
+     */
+    public PuzzleParser(ByteBuffer data)
+    {
+        this.data = data;
+        position = data.position();
+        end = data.limit();
+        line = 1;
+        lineStart = position;
+        scratch = new int[16];
+    }
+
+    /**
+     * Creates a parser for all of data.
+     */
+    public PuzzleParser(byte[] data)
+    {
+        this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Creates a parser for the text s, which should be ASCII.
+     */
+    public PuzzleParser(String s)
+    {
+        this(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Returns the number of the line the parser is on, counting from 1.
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    /**
+     * Returns true iff every byte has been read.
+     */
+    public boolean atEnd()
+    {
+        return position >= end;
+    }
+
+    /**
+     * Reads the numbers on the current line into a new array of the right length.
+     */
+    public int[] nextLine()
+    {
+        int count = 0;
+        while (skipSpaces()) {
+            if (count == scratch.length)
+                scratch = Arrays.copyOf(scratch, 2 * count);
+            scratch[count++] = nextNumber();
+        }
+        endLine();
+        return Arrays.copyOf(scratch, count);
+    }
+
+    /**
+     * Reads the numbers on the current line into row, which it must fill exactly,
+     * and returns row.
+     */
+    public int[] nextLine(int[] row)
+    {
+        int count = 0;
+        while (skipSpaces()) {
+            if (count == row.length)
+                throw error("expected " + row.length + " numbers but found more");
+            row[count++] = nextNumber();
+        }
+        if (count < row.length)
+            throw error("expected " + row.length + " numbers but found " + count);
+        endLine();
+        return row;
+    }
+
+    /**
+     * Skips the rest of the current line, whatever it holds.
+     */
+    public void skipLine()
+    {
+        while (position < end && data.get(position) != '\n')
+            position++;
+        endLine();
+    }
+
+    /**
+     * Skips any lines holding nothing but spaces, tabs and carriage returns.
+     */
+    public void skipBlankLines()
+    {
+        while (!skipSpaces()) {
+            if (position >= end)
+                return;
+            endLine();
+        }
+        position = lineStart;
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns.
+     * Returns true iff a number should follow on the current line.
+     */
+    private boolean skipSpaces()
+    {
+        while (position < end) {
+            byte b = data.get(position);
+            if (b != ' ' && b != '\t' && b != '\r')
+                return b != '\n';
+            position++;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the number starting at position, which must be followed by a space or the end of a line.
+     */
+    private int nextNumber()
+    {
+        boolean negative = data.get(position) == '-';
+        if (negative)
+            position++;
+
+        int numberStart = position;
+        long value = 0;
+        while (position < end && data.get(position) >= '0' && data.get(position) <= '9') {
+            value = 10 * value + (data.get(position) - '0');
+            if (value > (long) Integer.MAX_VALUE + 1)
+                throw error("number too large");
+            position++;
+        }
+        if (position == numberStart)
+            throw error("expected a digit but found " + found());
+        if (position < end && !isSeparator(data.get(position)))
+            throw error("expected a digit or a space but found " + found());
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE)
+            throw error("number too large");
+        return (int) value;
+    }
+
+    /**
+     * Moves past the newline ending the current line, if there is one.
+     */
+    private void endLine()
+    {
+        if (position < end) {
+            position++;
+            line++;
+            lineStart = position;
+        }
+    }
+
+    /**
+     * Returns true iff b may come between two numbers.
+     */
+    private static boolean isSeparator(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Describes the byte at the current position.
+     */
+    private String found()
+    {
+        return position < end ? "'" + (char) data.get(position) + "'" : "the end of the input";
+    }
+
+    /**
+     * Returns an exception describing the problem at the current position.
+     */
+    private NumberFormatException error(String problem)
+    {
+        return new NumberFormatException("line " + line + ", column " + (position - lineStart + 1)
+                                         + ": " + problem);
+    }
+}
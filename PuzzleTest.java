@@ -0,0 +1,71 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class provides unit test cases for the Puzzle class.
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+public class PuzzleTest
+{
+    private Puzzle p6;
+
+    @Before
+    public void setUp()
+    {
+        p6 = Puzzle.load("Examples/a6_1.txt");
+    }
+
+    @Test
+    public void testPuzzle()
+    {
+        assertEquals("wrong size",  6, p6.getSize());
+        assertEquals("wrong entry", 2, p6.getColumnTotal(0));
+        assertEquals("wrong entry", 5, p6.getRowTotal(5));
+        assertEquals("wrong text",  new Aquarium("Examples/a6_1.txt").toText(), p6.toText());
+        assertSame  ("wrong region", p6.getRegion(p6.getAquarium(2, 3)), p6.getRegions()[p6.getAquarium(2, 3)]);
+        assertNull  ("extra region", p6.getRegion(p6.getRegionCount()));
+    }
+
+    @Test
+    public void testimmutable()
+    {
+        int[] columnTotals = p6.getColumnTotals();
+        int[][] aquariums = p6.getAquariums();
+        columnTotals[0] = 99;
+        aquariums[0][0] = 99;
+        p6.getRegions()[1] = null;
+        assertEquals("changed", 2, p6.getColumnTotal(0));
+        assertNotEquals("changed", 99, p6.getAquarium(0, 0));
+        assertNotNull("changed", p6.getRegion(1));
+
+        // the arrays given to the constructor are copied too
+        int[] totals = {1, 0};
+        int[][] grid = {{1, 1}, {2, 2}};
+        Puzzle p2 = new Puzzle(totals, totals, grid);
+        totals[0] = 5;
+        grid[1][1] = 1;
+        assertEquals("changed", 1, p2.getColumnTotal(0));
+        assertEquals("changed", 2, p2.getAquarium(1, 1));
+    }
+
+    @Test
+    public void testshared()
+    {
+        Aquarium a = new Aquarium(p6);
+        Aquarium b = new Aquarium(p6);
+        assertSame("not shared", a.getPuzzle(), b.getPuzzle());
+        a.leftClick(5, 0);
+        assertEquals("wrong entry", Space.WATER, a.getSpaces()[5][0]);
+        assertEquals("wrong entry", Space.EMPTY, b.getSpaces()[5][0]);
+        assertEquals("wrong count", 0, b.getRowCounts()[5]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testwrongShape()
+    {
+        new Puzzle(new int[2], new int[2], new int[][] {{1, 1}, {1}});
+    }
+}
@@ -6,9 +6,13 @@
  * @version April 2019
  */
  
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 
 public class SimpleCanvas
 {
@@ -17,24 +21,48 @@ public class SimpleCanvas
     private Graphics2D graphic;
     private Image      canvasImage;
     private boolean    autoRepaint;
+    private int        frameDepth;   // the number of beginFrame calls not yet ended
+    private boolean    frameChanged; // whether anything has been drawn in the open frame
+    private Timer      frameTimer;   // holds repaints back to the frame rate cap, or null if there is none
+    private boolean    framePending; // whether a repaint is waiting for frameTimer
     
     /**
-     * Creates and displays a SimpleCanvas of the specified size and background 
+     * Creates and displays a SimpleCanvas of the specified size and background.
+     * If there is no display, the SimpleCanvas is drawn only in memory, with no window.
      */
     public SimpleCanvas(String title, int width, int height, Color bgColour) {
-        frame = new JFrame();
-        canvas = new CanvasPane();
-        frame.setContentPane(canvas);
-        frame.setTitle(title);
-        canvas.setPreferredSize(new Dimension(width,height));
-        frame.pack();
-        Dimension size = canvas.getSize();
-        canvasImage = canvas.createImage(size.width,size.height);
+        if (GraphicsEnvironment.isHeadless()) {
+            canvasImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        } else {
+            frame = new JFrame();
+            canvas = new CanvasPane();
+            frame.setContentPane(canvas);
+            frame.setTitle(title);
+            canvas.setPreferredSize(new Dimension(width,height));
+            frame.pack();
+            Dimension size = canvas.getSize();
+            width = size.width;
+            height = size.height;
+            canvasImage = canvas.createImage(width,height);
+        }
         graphic = (Graphics2D) canvasImage.getGraphics();
         graphic.setColor(bgColour);
-        graphic.fillRect(0,0,size.width,size.height);
+        graphic.fillRect(0,0,width,height);
+        graphic.setColor(Color.black);
+        if (frame != null) frame.setVisible(true);
+        this.autoRepaint = true;
+    }
+    
+    /**
+     * Creates a SimpleCanvas of the specified size and background which is drawn
+     * only in memory, with no window; its picture can be copied to another with drawImage.
+     */
+    public SimpleCanvas(int width, int height, Color bgColour) {
+        canvasImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        graphic = (Graphics2D) canvasImage.getGraphics();
+        graphic.setColor(bgColour);
+        graphic.fillRect(0,0,width,height);
         graphic.setColor(Color.black);
-        frame.setVisible(true);
         this.autoRepaint = true;
     }
     
@@ -52,7 +80,7 @@ public class SimpleCanvas
     public void drawLine(int x1, int y1, int x2, int y2, Color c) {
         setForegroundColour(c);
         graphic.drawLine(x1, y1, x2, y2);
-        if (autoRepaint) canvas.repaint();
+        changed();
     }
     
     /** 
@@ -69,30 +97,143 @@ public class SimpleCanvas
     public void drawRectangle(int x1, int y1, int x2, int y2, Color c) {
         setForegroundColour(c);
         graphic.fillRect(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x1 - x2), Math.abs(y1 - y2));
-        if (autoRepaint) canvas.repaint();
+        changed();
     }
     
     /** 
      * Draws a disc on this SimpleCanvas centred at x,y with radius r with colour c.
      */
     public void drawDisc(int x, int y, int r, Color c) {
+        beginFrame();
         for (int i = x - r; i <= x + r; i++)
             for (int j = y - r; j <= y + r; j++)
                 if (Math.pow(i-x, 2) + Math.pow(j-y, 2) <= Math.pow(r, 2)) 
                    drawPoint(i, j, c);
-        if (autoRepaint) canvas.repaint();
+        endFrame();
     }
     
     /** 
      * Draws a circle on this SimpleCanvas centred at x,y with radius r with colour c.
      */
     public void drawCircle(int x, int y, int r, Color c) {
+        beginFrame();
         for (int i = x - r; i <= x + r; i++)
             for (int j = y - r; j <= y + r; j++)
                 if (Math.pow(i-x, 2) + Math.pow(j-y, 2) <= Math.pow(r,     2) &&
                     Math.pow(i-x, 2) + Math.pow(j-y, 2) >= Math.pow(r - 5, 2)) 
                    drawPoint(i, j, c);
-        if (autoRepaint) canvas.repaint();
+        endFrame();
+    }
+    
+    /**
+     * Copies image onto this SimpleCanvas with its top left corner at x,y.
+     */
+    public void drawImage(Image image, int x, int y) {
+        graphic.drawImage(image, x, y, null);
+        changed();
+    }
+    
+    /**
+     * Copies the part of image between x1,y1 and x2,y2 onto the same place on this SimpleCanvas.
+     */
+    public void drawImage(Image image, int x1, int y1, int x2, int y2) {
+        graphic.drawImage(image, x1, y1, x2, y2, x1, y1, x2, y2, null);
+        changed();
+    }
+    
+    /**
+     * Returns the picture drawn on this SimpleCanvas. It changes as more is drawn.
+     */
+    public Image getImage() {
+        return canvasImage;
+    }
+    
+    /**
+     * Writes the picture drawn on this SimpleCanvas to the file named filename, as a PNG.
+     */
+    public void save(String filename) throws IOException {
+        BufferedImage image;
+        if (canvasImage instanceof BufferedImage) {
+            image = (BufferedImage) canvasImage;
+        } else {
+            image = new BufferedImage(canvasImage.getWidth(null), canvasImage.getHeight(null), BufferedImage.TYPE_INT_RGB);
+            image.getGraphics().drawImage(canvasImage, 0, 0, null);
+        }
+        if (!ImageIO.write(image, "png", new File(filename)))
+            throw new IOException("no PNG writer for " + filename);
+    }
+    
+    /**
+     * Starts a frame: nothing drawn until the matching endFrame is repainted on its own,
+     * so a whole frame reaches the screen in one repaint. Frames may be nested.
+     */
+    public void beginFrame() {
+        frameDepth++;
+    }
+    
+    /**
+     * Ends the frame started by the matching beginFrame, and repaints once if the 
+     * outermost frame has ended and anything was drawn in it.
+     */
+    public void endFrame() {
+        if (frameDepth == 0)
+            throw new IllegalStateException("endFrame without beginFrame");
+        if (--frameDepth == 0 && frameChanged) {
+            frameChanged = false;
+            if (autoRepaint) requestRepaint();
+        }
+    }
+    
+    /**
+     * Limits automatic repaints to framesPerSecond; changes made between repaints are 
+     * shown together at the next one. 0 removes the limit.
+     */
+    public void setFrameRate(int framesPerSecond) {
+        if (frameTimer != null) {
+            frameTimer.stop();
+            frameTimer = null;
+        }
+        if (framePending) {
+            framePending = false;
+            canvas.repaint();
+        }
+        if (framesPerSecond > 0) {
+            frameTimer = new Timer(1000 / framesPerSecond, e -> {
+                if (framePending) {
+                    framePending = false;
+                    canvas.repaint();
+                    frameTimer.restart();
+                }
+            });
+            frameTimer.setRepeats(false);
+        }
+    }
+    
+    /**
+     * Repaints after a drawing command, unless a frame is open.
+     */
+    private void changed() {
+        if (frameDepth > 0) frameChanged = true;
+        else if (autoRepaint) requestRepaint();
+    }
+    
+    /**
+     * Repaints now, or when frameTimer next fires if there has been a repaint too recently.
+     */
+    private void requestRepaint() {
+        if (canvas == null) {
+            return;
+        }
+        else if (frameTimer == null) {
+            canvas.repaint();
+        }
+        else if (frameTimer.isRunning()) {
+            framePending = true;
+        }
+        else {
+            canvas.repaint();
+            frameTimer.start();
+        }
     }
     
     /**
@@ -101,7 +242,7 @@ public class SimpleCanvas
     public void drawString(String text, int x, int y, Color c) {
         setForegroundColour(c);
         graphic.drawString(text, x, y);
-        if (autoRepaint) canvas.repaint();
+        changed();
     }
     
     /**
@@ -153,7 +294,7 @@ public class SimpleCanvas
      * this method can be used to cause a manual repaint.
      */
     public void repaint() {
-        canvas.repaint();
+        if (canvas != null) canvas.repaint();
     }
     
     /**
@@ -173,6 +314,7 @@ public class SimpleCanvas
      * Sets up this SimpleCanvas to respond to mouse input.
      */
     public void addMouseListener(MouseListener ml) {
+        if (canvas == null) return; // there is no window to click on
         canvas.addMouseListener(ml);
     }
     
@@ -180,9 +322,20 @@ public class SimpleCanvas
      * Sets up this SimpleCanvas to respond to mouse motion input.
      */
     public void addMouseMotionListener(MouseMotionListener mml) {
+        if (canvas == null) return;
         canvas.addMouseMotionListener(mml);
     }
     
+    /**
+     * Sets up this SimpleCanvas to respond to keyboard input, and gives it the keyboard focus.
+     */
+    public void addKeyListener(KeyListener kl) {
+        if (canvas == null) return;
+        canvas.setFocusable(true);
+        canvas.addKeyListener(kl);
+        canvas.requestFocusInWindow();
+    }
+    
     class CanvasPane extends JPanel {
         public void paint(Graphics g) {
             g.drawImage(canvasImage,0,0,null);
@@ -0,0 +1,179 @@
+/**
+ * SubsetSums decides, for a list of values and a target, which values are in
+ * every subset summing to the target and which are in none of them,
+ * without listing the subsets themselves.
+ *
+ * It keeps, as bitsets over the sums 0..target, the sums reachable from each prefix
+ * and each suffix of the values. A value can be in a subset iff some prefix sum before it
+ * and some suffix sum after it add up to the target less the value, and it can be out
+ * iff they add up to the target itself. This takes O(n * target) time for n values,
+ * so rows of 50 or more segments cost no more than a few hundred word operations.
+ * The working storage grows on demand and is reused, so a solver that keeps one
+ * SubsetSums object allocates nothing once it has seen its widest row.
+ *
+ * @author Michael Nefiodovas (22969312) & Lisa Chen (22855669)
+ * @version 1.0
+ */
+public class SubsetSums
+{
+    private int    count;      // the number of values in the last call to solve
+    private int    sumWords;   // the number of longs in each bitset of sums
+    private long[] prefixes;   // bit s of prefix i is set iff some subset of values[0..i) sums to s
+    private long[] suffixes;   // bit s of suffix i is set iff some subset of values[i..count) sums to s
+    private long[] forcedIn;   // bit i is set iff values[i] is in every subset summing to the target
+    private long[] forcedOut;  // bit i is set iff values[i] is in no subset summing to the target
+
+    /**
+     * Creates a SubsetSums object with no working storage yet.
+     */
+    public SubsetSums()
+    {
+        prefixes = new long[0];
+        suffixes = new long[0];
+        forcedIn = new long[0];
+        forcedOut = new long[0];
+    }
+
+    /**
+     * Examines the subsets of values[0..count) which sum to target.
+     * Returns true iff there is at least one; isForcedIn and isForcedOut
+     * then describe the values. All values must be positive.
+     */
+    public boolean solve(int target, int[] values, int count)
+    {
+        this.count = count;
+        if (target < 0)
+            return false;
+
+        sumWords = Bitboard.wordsFor(target + 1);
+        int bitsetWords = (count + 1) * sumWords;
+        if (prefixes.length < bitsetWords) {
+            prefixes = new long[bitsetWords];
+            suffixes = new long[bitsetWords];
+        }
+        int maskWords = Bitboard.wordsFor(count);
+        if (forcedIn.length < maskWords) {
+            forcedIn = new long[maskWords];
+            forcedOut = new long[maskWords];
+        }
+
+        // the empty prefix and the empty suffix both reach only 0
+        clear(prefixes, 0);
+        prefixes[0] = 1L;
+        for (int i = 0; i < count; ++i)
+            shiftOr(prefixes, i * sumWords, (i + 1) * sumWords, values[i], target);
+
+        clear(suffixes, count * sumWords);
+        suffixes[count * sumWords] = 1L;
+        for (int i = count - 1; i >= 0; --i)
+            shiftOr(suffixes, (i + 1) * sumWords, i * sumWords, values[i], target);
+
+        if (!has(prefixes, count * sumWords, target))
+            return false;
+
+        for (int word = 0; word < maskWords; ++word) {
+            forcedIn[word] = 0L;
+            forcedOut[word] = 0L;
+        }
+        for (int i = 0; i < count; ++i) {
+            boolean canBeIn = values[i] <= target && meets(i, target - values[i]);
+            boolean canBeOut = meets(i, target);
+            if (!canBeOut)
+                forcedIn[i >>> 6] |= 1L << i;
+            if (!canBeIn)
+                forcedOut[i >>> 6] |= 1L << i;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true iff value i is in every subset found by the last call to solve.
+     */
+    public boolean isForcedIn(int i)
+    {
+        return (forcedIn[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns true iff value i is in none of the subsets found by the last call to solve.
+     */
+    public boolean isForcedOut(int i)
+    {
+        return (forcedOut[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns the values in every subset found by the last call to solve,
+     * as a bitmask of their positions. The array is reused by the next call.
+     */
+    public long[] getForcedIn()
+    {
+        return forcedIn;
+    }
+
+    /**
+     * Returns the values in none of the subsets found by the last call to solve,
+     * as a bitmask of their positions. The array is reused by the next call.
+     */
+    public long[] getForcedOut()
+    {
+        return forcedOut;
+    }
+
+    /**
+     * Returns true iff the values before position i and the values after it
+     * have subsets whose sums add up to sum.
+     */
+    private boolean meets(int i, int sum)
+    {
+        int prefix = i * sumWords;
+        int suffix = (i + 1) * sumWords;
+        for (int s = 0; s <= sum; ++s) {
+            if (has(prefixes, prefix, s) && has(suffixes, suffix, sum - s))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bitset at to to the bitset at from, together with
+     * the bitset at from shifted up by shift, keeping only the sums up to target.
+     */
+    private void shiftOr(long[] bitsets, int from, int to, int shift, int target)
+    {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for (int word = sumWords - 1; word >= 0; --word) {
+            long shifted = 0L;
+            int source = word - wordShift;
+            if (source >= 0) {
+                shifted = bitsets[from + source] << bitShift;
+                if (bitShift != 0 && source > 0)
+                    shifted |= bitsets[from + source - 1] >>> (64 - bitShift);
+            }
+            bitsets[to + word] = bitsets[from + word] | shifted;
+        }
+
+        // drop any sums past the target from the last word
+        int lastBits = (target + 1) & 63;
+        if (lastBits != 0)
+            bitsets[to + sumWords - 1] &= (1L << lastBits) - 1;
+    }
+
+    /**
+     * Returns true iff bit s of the bitset at offset is set.
+     */
+    private boolean has(long[] bitsets, int offset, int s)
+    {
+        return (bitsets[offset + (s >>> 6)] & (1L << s)) != 0;
+    }
+
+    /**
+     * Clears the bitset at offset.
+     */
+    private void clear(long[] bitsets, int offset)
+    {
+        for (int word = 0; word < sumWords; ++word)
+            bitsets[offset + word] = 0L;
+    }
+}